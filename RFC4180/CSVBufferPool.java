@@ -0,0 +1,57 @@
+package RFC4180;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+// Buffers shared by readers over many small inputs: a CSVReader built with
+// Builder.bufferPool() borrows its I/O and record buffers and gives them back on close().
+// One pool can be shared by readers on different threads.
+public final class CSVBufferPool{
+	private final int maxPooled; // per kind of buffer
+	private final ArrayDeque<char[]> ioBuffers;
+	private final ArrayDeque<StringBuilder> recordBuffers;
+
+	public CSVBufferPool(int maxPooled){
+		if(maxPooled <= 0){
+			throw new IllegalArgumentException("Pool size must be positive");
+		}
+		this.maxPooled = maxPooled;
+		this.ioBuffers = new ArrayDeque<>();
+		this.recordBuffers = new ArrayDeque<>();
+	}
+
+	// Any pooled buffer of at least size chars, it may have been grown by an adaptive reader
+	synchronized char[] borrowIOBuffer(int size){
+		Iterator<char[]> it = ioBuffers.iterator();
+		while(it.hasNext()){
+			char[] buff = it.next();
+			if(buff.length >= size){
+				it.remove();
+				return buff;
+			}
+		}
+		return new char[size];
+	}
+
+	synchronized StringBuilder borrowRecordBuffer(int capacity){
+		StringBuilder buff = recordBuffers.poll();
+		if(buff == null){
+			return new StringBuilder(capacity);
+		}
+		buff.setLength(0);
+		return buff;
+	}
+
+	synchronized void release(char[] ioBuff, StringBuilder recordBuffer){
+		if(ioBuffers.size() < maxPooled){
+			ioBuffers.push(ioBuff);
+		}
+		if(recordBuffers.size() < maxPooled){
+			recordBuffers.push(recordBuffer);
+		}
+	}
+
+	public synchronized int getPooledCount(){
+		return ioBuffers.size() + recordBuffers.size();
+	}
+}
@@ -0,0 +1,450 @@
+package RFC4180;
+
+import static RFC4180.CSVReader.*;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import java.io.InputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.charset.StandardCharsets;
+
+// Byte oriented twin of CSVReader for UTF-8 input.
+// Quote, CR, LF and ASCII delimiters never occur inside a UTF-8 multi-byte sequence,
+// so the same FSM can run on raw bytes and decoding is delayed until CSVRecord.getField()
+public final class CSVByteReader implements Iterator<CSVRecord>, AutoCloseable{
+	private interface EndingHandler{
+		void handle();
+	}
+
+	// Exactly one of these is the source
+	private final InputStream in;
+	private final ReadableByteChannel channel;
+
+	// Memory-mapped mode, channel is a FileChannel scanned window by window
+	private final boolean mapped;
+	private long mapPos;
+	private final long mapEnd;
+
+	private byte[] recordBuffer;
+	private int recordLength;
+	private int[] fieldLastIndices;
+	private int size;
+	private boolean firstRecRead;
+	private int expectedColumnCount;
+	private int state;
+	private boolean recReady;
+
+	// Exception Handling
+	private int recordNumber;
+	private int actualColumnCount;
+	private int recStart; // where the current record begins in ioBuff
+	private byte[] spill; // its earlier part, saved when ioBuff was refilled or remapped
+	private int spillLength;
+
+	// Buffering and Lookahead
+	private ByteBuffer ioBuff;
+	private int ioPos;
+	private int limit;
+	private int nextChar;
+	private int buffered;
+	private boolean finished;
+	private boolean rangeEndsAtRecord; // input is a slice of a larger file, see CSVParallelReader
+
+	// Delay Commit
+	private int countTrailSpaces;
+
+	// Configurations
+	private final Mode mode;
+	private final boolean enableFSMTrace;
+	private final boolean trimSpaces;
+
+	private final int[] inputClassTable;
+
+	private final EndingHandler endingHandler;
+
+	// Mapped windows stay well below the 2 GB limit of a single MappedByteBuffer
+	private static final long MAP_WINDOW = 1L << 30;
+
+	CSVByteReader(InputStream in, ReadableByteChannel channel, int bufferSize, Mode mode, char[] delimiters, boolean trimSpaces, boolean enableFSMTrace){
+		this(in, channel, false, bufferSize, 0, 0, mode, delimiters, trimSpaces, enableFSMTrace);
+	}
+
+	// Maps [start, end) of the file instead of reading it through ioBuff
+	CSVByteReader(FileChannel file, long start, long end, Mode mode, char[] delimiters, boolean trimSpaces, boolean enableFSMTrace){
+		this(null, file, true, 0, start, end, mode, delimiters, trimSpaces, enableFSMTrace);
+	}
+
+	private CSVByteReader(InputStream in, ReadableByteChannel channel, boolean mapped, int bufferSize, long start, long end,
+				Mode mode, char[] delimiters, boolean trimSpaces, boolean enableFSMTrace){
+		if(channel instanceof SelectableChannel && !((SelectableChannel)channel).isBlocking()){
+			throw new IllegalArgumentException("Channel must be in blocking mode");
+		}
+		this.in = in;
+		this.channel = channel;
+		this.mapped = mapped;
+		this.mapPos = start;
+		this.mapEnd = end;
+		this.mode = mode;
+
+		switch(mode){
+			case WINDOWS:
+				endingHandler = this::windowsEnding;
+				break;
+			case LENIENT:
+				endingHandler = this::lenientEnding;
+				break;
+			case UNIX:
+				endingHandler = () -> {}; // nothing
+				break;
+			default:
+				throw new IllegalArgumentException("Invalid Reader Mode");
+		}
+
+		this.inputClassTable = new int[128]; // already filled with OTHER
+		inputClassTable['\"'] = QUOTE;
+		inputClassTable['\r'] = CR;
+		inputClassTable['\n'] = LF;
+		for(char d:delimiters){
+			if(d == '\r' || d == '\n'){
+				throw new IllegalArgumentException("Delimiter cannot be Line Ending");
+			}
+			if(d >= 128){
+				throw new IllegalArgumentException("Delimiter must be ASCII for byte parsing");
+			}
+		}
+		for(char d:delimiters){
+			inputClassTable[d] = DELIMITER;
+		}
+
+		this.trimSpaces = trimSpaces;
+		this.enableFSMTrace = enableFSMTrace;
+
+		this.countTrailSpaces = 0;
+
+		this.recReady = false;
+		this.finished = false;
+		this.firstRecRead = false;
+
+		this.ioBuff = mapped? ByteBuffer.allocate(0) : ByteBuffer.allocate(bufferSize); // first fill() maps a window
+		this.ioPos = 0;
+		this.limit = 0;
+		this.buffered = -2; // empty
+		this.spill = new byte[64];
+		this.nextChar = bufferedRead();
+
+		this.recordBuffer = new byte[64];
+		this.recordLength = 0;
+		this.fieldLastIndices = new int[128]; // 128 cols initially
+		this.size = 0;
+		this.expectedColumnCount = 0;
+		this.state = FIELD_START; // Starting state of FSM
+	}
+
+	// Continue after recordNumber records parsed elsewhere, with the column count of record 1
+	void resume(int expectedColumnCount, int recordNumber){
+		this.firstRecRead = true;
+		this.expectedColumnCount = expectedColumnCount;
+		this.fieldLastIndices = new int[expectedColumnCount];
+		this.recordNumber = recordNumber;
+	}
+
+	// The slice ends right after a record, so a trailing all-empty record is real data
+	// rather than the blank last line that is dropped at the true end of input
+	void endsAtRecordBoundary(){
+		this.rangeEndsAtRecord = true;
+	}
+
+	@Override
+	public void close(){
+		try{
+			if(in != null){
+				in.close();
+			}else if(channel != null){
+				channel.close();
+			}
+		}catch(IOException e){
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void getFSMTrace(){
+		int ch = (nextChar == -1)? EOF : (nextChar<128)? inputClassTable[nextChar] : OTHER;
+		String line = "-------------------------------------------------";
+		System.out.println(line);
+
+		System.out.println(
+			"STATE: " + states[state] +
+			"\nCURRENTLY READ BYTE: " +
+			(nextChar == -1 ? "EOF" :
+				(nextChar == '\r' ? "<CR>" :
+					(nextChar == '\n' ? "<LF>" :
+						(nextChar < 128 ? "'" + (char)nextChar + "'" : String.format("0x%02X", nextChar)))))
+			+ "\nCHARACTER CLASS: " + classes[ch]
+		);
+
+		System.out.println("\nCURRENT RECORD READY? ["+(recReady || ch == EOF)+"]");
+		System.out.println(line);
+	}
+
+	private int fill(){
+		try{
+			if(mapped){
+				if(mapPos >= mapEnd){
+					return -1;
+				}
+				long window = Math.min(MAP_WINDOW, mapEnd - mapPos);
+				ioBuff = ((FileChannel)channel).map(FileChannel.MapMode.READ_ONLY, mapPos, window);
+				mapPos += window;
+				return (int)window;
+			}
+			if(in != null){
+				return in.read(ioBuff.array(), 0, ioBuff.capacity());
+			}
+
+			ioBuff.clear();
+			int n = channel.read(ioBuff);
+			if(n == 0){
+				// a blocking read into an empty buffer gets at least one byte, retrying would only spin
+				throw new IOException("Channel read no bytes, non-blocking channels are not supported");
+			}
+			return n;
+		}catch(IOException e){
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private int bufferedRead(){
+		if(buffered != -2){
+			int temp = buffered;
+			buffered = -2;
+			return temp;
+		}
+
+		if(ioPos >= limit){
+			if(limit > recStart){
+				int len = limit - recStart;
+				if(spillLength + len > spill.length){
+					spill = grow(spill, spillLength + len);
+				}
+				ioBuff.get(recStart, spill, spillLength, len);
+				spillLength += len;
+			}
+			recStart = 0;
+			limit = fill();
+			ioPos = 0;
+
+			if(limit == -1){
+				return -1;
+			}
+		}
+
+		return ioBuff.get(ioPos++) & 0xFF;
+	}
+
+	private static byte[] grow(byte[] arr, int needed){
+		int capacity = arr.length + (arr.length >> 1);
+		return Arrays.copyOf(arr, (capacity > needed)? capacity : needed);
+	}
+
+	private void append(int b){
+		if(recordLength == recordBuffer.length){
+			recordBuffer = grow(recordBuffer, recordLength+1);
+		}
+		recordBuffer[recordLength++] = (byte)b;
+	}
+
+	// Raw record so far, see CSVReader.recHistory()
+	private String history(){
+		int end = (buffered >= 0)? ioPos-1 : ioPos;
+		byte[] raw = Arrays.copyOf(spill, spillLength + Math.max(end - recStart, 0));
+		if(end > recStart){
+			ioBuff.get(recStart, raw, spillLength, end - recStart);
+		}
+		return replayHistory(new String(raw, StandardCharsets.UTF_8), mode, trimSpaces, inputClassTable);
+	}
+
+	private void perform(int act){
+		switch(act){
+			case EMIT_RECORD:
+				recReady = true;
+			case EMIT_FIELD:
+				if(size == fieldLastIndices.length){
+					int capacity = size + (size >> 1);
+					int[] newArr = new int[capacity];
+
+					System.arraycopy(fieldLastIndices, 0, newArr, 0, size);
+
+					fieldLastIndices = newArr;
+				}
+				actualColumnCount++;
+				if(firstRecRead && actualColumnCount > expectedColumnCount){
+					throw new CSVFormatException(recordNumber+1, expectedColumnCount, actualColumnCount, history());
+				}
+				fieldLastIndices[size] = recordLength;
+				size++;
+				break;
+			case NO_OP:
+				break;
+			case APPEND:
+				append(nextChar);
+				break;
+			case THROW_ERROR:
+				throw new CSVFormatException(recordNumber+1, actualColumnCount+1, mode.name(), trimSpaces);
+		}
+	}
+
+	private void windowsEnding(){
+		if(nextChar == '\r' && state != QUOTED){
+			int lookahead = bufferedRead();
+
+			if(lookahead != '\n'){
+				perform(THROW_ERROR);
+			}else{
+				nextChar = lookahead;
+			}
+		}else if(nextChar == '\n' && state != QUOTED){
+			perform(THROW_ERROR);
+		}
+	}
+
+	private void lenientEnding(){
+		if(nextChar == '\r' && state != QUOTED){
+			// same single byte lookahead as CSVReader.lenientEnding()
+			int lookahead = bufferedRead();
+
+			if(lookahead != '\n'){
+				buffered = lookahead;
+				nextChar = '\n';
+			}else{
+				nextChar = lookahead;
+			}
+		}
+	}
+
+	private void delayedCommit(int ch){
+		if(ch == OTHER){
+			while(countTrailSpaces > 0){
+				append(' ');
+				countTrailSpaces--;
+			}
+		}else{
+			countTrailSpaces = 0;
+		}
+	}
+
+	private CSVRecord takeRecord(){
+		CSVRecord r = new CSVRecord(Arrays.copyOf(recordBuffer, recordLength), fieldLastIndices, expectedColumnCount, recordNumber+1);
+		recordLength = 0;
+		return r;
+	}
+
+	@Override
+	public boolean hasNext(){
+		return !finished || recReady;
+	}
+
+	// Records in file order; under parallel() batches of parsed records go to the fork-join pool
+	// while this reader keeps parsing. Closing the stream closes the reader.
+	public Stream<CSVRecord> stream(){
+		return StreamSupport.stream(new CSVSpliterator(this, false), false).onClose(this::close);
+	}
+
+	@Override
+	public CSVRecord next() throws NoSuchElementException{
+		while(true){
+			// In Trim Mode, read but do not process space bytes at FIELD_START
+			if(trimSpaces && nextChar == ' ' && state == FIELD_START){
+				nextChar = bufferedRead();
+				continue;
+			}
+			// In Trim Mode, read but delay proccessing of trailing space bytes due to ambiguity
+			if(trimSpaces && nextChar == ' ' && (state == UNQUOTED || state == QUOTED_END)){
+				countTrailSpaces++;
+				nextChar = bufferedRead();
+				continue;
+			}
+
+			// normalise CR/CRLF to LF
+			endingHandler.handle();
+
+			int ch = (nextChar == -1)? EOF : (nextChar<128)? inputClassTable[nextChar] : OTHER;
+			int next = step[state*CLASSES + ch];
+
+			// Delayed commit before performing action when OTHER byte encountered
+			delayedCommit(ch);
+
+			perform(next & ACTION_MASK);
+
+			if(enableFSMTrace) getFSMTrace();
+
+			state = next >>> STEP_SHIFT;
+
+			if(recReady){
+				if(!firstRecRead){
+					firstRecRead = true;
+					expectedColumnCount = size;
+					fieldLastIndices = Arrays.copyOf(fieldLastIndices, size);
+				}
+
+				if(actualColumnCount < expectedColumnCount){
+					String recHistoryString = history().replace("\r", "<CR>").replace("\n", "<LF>");
+					throw new CSVFormatException(recordNumber+1, expectedColumnCount, actualColumnCount, recHistoryString);
+				}
+
+				recReady = false;
+				nextChar = bufferedRead();
+				state = FIELD_START;
+
+				// To deal with edge cases of the form "(...)     \r\n"
+				if(nextChar == -1){
+					finished = true;
+					break;
+				}
+
+				CSVRecord r = takeRecord();
+				recStart = ioPos-1; // nextChar opens the next record
+				spillLength = 0;
+
+				size = 0;
+				actualColumnCount = 0;
+
+				recordNumber++;
+
+				return r;
+			}
+
+			if(ch == EOF){
+				finished = true;
+				break;
+			}
+
+			nextChar = bufferedRead();
+		}
+
+		// Flush at EOF
+		// recordLength != 0 guards against completely empty inputs
+		if(finished && (recordLength != 0 || (rangeEndsAtRecord && size != 0))){
+			if(firstRecRead && actualColumnCount < expectedColumnCount){
+				// an unterminated last record is checked like any other
+				String recHistoryString = history().replace("\r", "<CR>").replace("\n", "<LF>");
+				throw new CSVFormatException(recordNumber+1, expectedColumnCount, actualColumnCount, recHistoryString);
+			}
+			CSVRecord r = takeRecord();
+			recordNumber++;
+
+			return r;
+		}
+
+		throw new NoSuchElementException();
+	}
+}
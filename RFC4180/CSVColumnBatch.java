@@ -0,0 +1,113 @@
+package RFC4180;
+
+import java.util.Arrays;
+
+// Records laid out column by column, as returned by CSVReader.nextBatch().
+// Column c keeps all its fields back to back in getData(c); field r spans
+// [getOffsets(c)[r], getOffsets(c)[r+1]) of it, like an Arrow string column.
+// The reader reuses (and overwrites) the same batch on every nextBatch() call.
+public final class CSVColumnBatch{
+	private int rowCount;
+	private int columnCount;
+	private char[][] data;
+	private int[][] offsets;
+	private int[] recordNumbers;
+	private char[] scratch; // the record being appended, copied out of the reader's StringBuilder once
+
+	CSVColumnBatch(){
+		this.data = new char[0][];
+		this.offsets = new int[0][];
+		this.recordNumbers = new int[16];
+		this.scratch = new char[64];
+	}
+
+	void clear(){
+		rowCount = 0;
+	}
+
+	// A record as CSVReader buffers it: fields back to back, each ending at fieldLastIndices[i].
+	// Fields past size (a short last record) are left empty.
+	void append(StringBuilder record, int[] fieldLastIndices, int size, int columns, int recordNumber){
+		if(rowCount == 0 && columns != columnCount){
+			columnCount = columns;
+			data = new char[columns][];
+			offsets = new int[columns][];
+			for(int c = 0; c<columns; c++){
+				data[c] = new char[64];
+				offsets[c] = new int[recordNumbers.length + 1];
+			}
+		}
+		if(rowCount + 1 == recordNumbers.length){
+			int capacity = recordNumbers.length + (recordNumbers.length >> 1);
+			recordNumbers = Arrays.copyOf(recordNumbers, capacity);
+			for(int c = 0; c<columnCount; c++){
+				offsets[c] = Arrays.copyOf(offsets[c], capacity + 1);
+			}
+		}
+
+		int recordLength = record.length();
+		if(recordLength > scratch.length){
+			scratch = new char[Math.max(recordLength, scratch.length * 2)];
+		}
+		record.getChars(0, recordLength, scratch, 0);
+
+		recordNumbers[rowCount] = recordNumber;
+		int start = 0;
+		for(int c = 0; c<columnCount; c++){
+			int end = (c < size)? fieldLastIndices[c] : start;
+			int len = end - start;
+			int[] offs = offsets[c];
+			int pos = offs[rowCount];
+			char[] column = data[c];
+			if(pos + len > column.length){
+				int capacity = column.length + (column.length >> 1);
+				column = data[c] = Arrays.copyOf(column, (capacity > pos + len)? capacity : pos + len);
+			}
+			System.arraycopy(scratch, start, column, pos, len);
+			offs[rowCount+1] = pos + len;
+			start = end;
+		}
+		rowCount++;
+	}
+
+	public int getRowCount(){
+		return rowCount;
+	}
+
+	public int getColumnCount(){
+		return columnCount;
+	}
+
+	// Only the first getOffsets(column)[getRowCount()] chars belong to this batch
+	public char[] getData(int column){
+		return data[column];
+	}
+
+	// getRowCount()+1 valid entries
+	public int[] getOffsets(int column){
+		return offsets[column];
+	}
+
+	// As CSVRecord.getRecordNumber(), skipped records leave gaps
+	public int getRecordNumber(int row){
+		checkRow(row);
+		return recordNumbers[row];
+	}
+
+	public int getLength(int row, int column){
+		checkRow(row);
+		return offsets[column][row+1] - offsets[column][row];
+	}
+
+	public String getString(int row, int column){
+		checkRow(row);
+		int start = offsets[column][row];
+		return new String(data[column], start, offsets[column][row+1] - start);
+	}
+
+	private void checkRow(int row){
+		if(row < 0 || row >= rowCount){
+			throw new IndexOutOfBoundsException(row);
+		}
+	}
+}
@@ -0,0 +1,178 @@
+package RFC4180;
+
+// Bounded dictionary of one column's values, set up with CSVReader.Builder.dictionary().
+// Fields are matched on the record's chars, a String is only built for a value not seen before,
+// so every occurrence of a value shares one canonical instance and one small code.
+// When full, a CLOCK sweep evicts a value that has not been hit since the hand last passed it;
+// new values start unmarked, so a run of one-off values cannot push out the frequent ones.
+// Records of a parallel stream share it, hence the locking.
+public final class CSVDictionary{
+	private final String[] values; // by code
+	private final int[] hashes; // String.hashCode() of each value
+	private final boolean[] referenced; // CLOCK bits
+	private final int[] table; // open addressing with linear probing, code+1 or 0 when empty
+	private final int mask;
+	private int size;
+	private int hand;
+
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	public CSVDictionary(int capacity){
+		if(capacity <= 0){
+			throw new IllegalArgumentException("Dictionary capacity must be positive");
+		}
+		this.values = new String[capacity];
+		this.hashes = new int[capacity];
+		this.referenced = new boolean[capacity];
+		int tableSize = 2;
+		while(tableSize < 2 * capacity){
+			tableSize <<= 1;
+		}
+		this.table = new int[tableSize];
+		this.mask = tableSize - 1;
+	}
+
+	// Canonical instance of chars [start, end) of seq
+	public synchronized String intern(CharSequence seq, int start, int end){
+		return values[lookup(seq, start, end)];
+	}
+
+	public String intern(CharSequence seq){
+		return intern(seq, 0, seq.length());
+	}
+
+	// Code in [0, getCapacity()) of chars [start, end) of seq. A code stands for its value until
+	// the value is evicted, after which it is handed to another one; see getEvictions(). Codes kept
+	// across records are only stable when the column has fewer distinct values than the capacity.
+	public synchronized int code(CharSequence seq, int start, int end){
+		return lookup(seq, start, end);
+	}
+
+	// Code and value in one lookup, the value going to values[at]; CSVRecord caches both per field
+	synchronized int resolve(CharSequence seq, int start, int end, String[] values, int at){
+		int code = lookup(seq, start, end);
+		values[at] = this.values[code];
+		return code;
+	}
+
+	public int code(CharSequence seq){
+		return code(seq, 0, seq.length());
+	}
+
+	// Value a code currently stands for, null when unused
+	public synchronized String getValue(int code){
+		return values[code];
+	}
+
+	private int lookup(CharSequence seq, int start, int end){
+		int hash = 0;
+		for(int i = start; i<end; i++){
+			hash = 31 * hash + seq.charAt(i);
+		}
+		int slot = home(hash);
+		while(table[slot] != 0){
+			int code = table[slot] - 1;
+			if(hashes[code] == hash && matches(values[code], seq, start, end)){
+				hits++;
+				referenced[code] = true;
+				return code;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		misses++;
+		int code;
+		if(size < values.length){
+			code = size++;
+		}else{
+			while(referenced[hand]){
+				referenced[hand] = false;
+				hand = (hand + 1 == values.length)? 0 : hand + 1;
+			}
+			code = hand;
+			hand = (hand + 1 == values.length)? 0 : hand + 1;
+			remove(code);
+			evictions++;
+			// the removal may have shifted entries into the probe run, find a free slot again
+			slot = home(hash);
+			while(table[slot] != 0){
+				slot = (slot + 1) & mask;
+			}
+		}
+		values[code] = seq.subSequence(start, end).toString();
+		hashes[code] = hash;
+		referenced[code] = false;
+		table[slot] = code + 1;
+		return code;
+	}
+
+	private static boolean matches(String value, CharSequence seq, int start, int end){
+		if(value.length() != end - start){
+			return false;
+		}
+		for(int i = 0; i<value.length(); i++){
+			if(value.charAt(i) != seq.charAt(start + i)){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private int home(int hash){
+		return (hash ^ (hash >>> 16)) & mask;
+	}
+
+	// Takes code out of the table, shifting back the entries behind it so no probe run is broken
+	private void remove(int code){
+		int i = home(hashes[code]);
+		while(table[i] != code + 1){
+			i = (i + 1) & mask;
+		}
+		table[i] = 0;
+		for(int j = (i + 1) & mask; table[j] != 0; j = (j + 1) & mask){
+			int k = home(hashes[table[j] - 1]);
+			// the entry at j may move to i unless its home lies cyclically within (i, j]
+			boolean stays = (i <= j)? (i < k && k <= j) : (i < k || k <= j);
+			if(!stays){
+				table[i] = table[j];
+				table[j] = 0;
+				i = j;
+			}
+		}
+		values[code] = null;
+	}
+
+	public int getCapacity(){
+		return values.length;
+	}
+
+	public synchronized int size(){
+		return size;
+	}
+
+	public synchronized long getHits(){
+		return hits;
+	}
+
+	public synchronized long getMisses(){
+		return misses;
+	}
+
+	public synchronized long getEvictions(){
+		return evictions;
+	}
+
+	// Share of lookups answered without building a String, 0 before the first one
+	public synchronized double getHitRate(){
+		long lookups = hits + misses;
+		return (lookups == 0)? 0 : (double)hits / lookups;
+	}
+
+	@Override
+	public synchronized String toString(){
+		return String.format("CSVDictionary[size=%d/%d, hitRate=%.3f, evictions=%d]",
+			size, values.length, getHitRate(), evictions);
+	}
+}
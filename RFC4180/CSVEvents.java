@@ -0,0 +1,59 @@
+package RFC4180;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Java Flight Recorder events of CSVReader. They cost next to nothing unless a recording
+// has them enabled, e.g. java -XX:StartFlightRecording:settings=profile ...
+final class CSVEvents{
+	private CSVEvents(){}
+
+	// Parsing of one buffer's worth of input, from one refill to the next
+	@Name("RFC4180.CSVParseChunk")
+	@Label("CSV Parse Chunk")
+	@Category({"RFC4180", "Parsing"})
+	@Description("Parsing of the chars between two buffer refills")
+	@StackTrace(false)
+	static final class ParseChunk extends Event{
+		@Label("Chars")
+		long chars;
+
+		@Label("Records")
+		@Description("Records completed in this chunk")
+		long records;
+	}
+
+	// One Reader.read() call, its duration is the time spent blocked on I/O
+	@Name("RFC4180.CSVBufferRefill")
+	@Label("CSV Buffer Refill")
+	@Category({"RFC4180", "I/O"})
+	@StackTrace(false)
+	static final class BufferRefill extends Event{
+		@Label("Chars Read")
+		@Description("-1 at end of input")
+		int chars;
+
+		@Label("Buffer Size")
+		int bufferSize;
+	}
+
+	@Name("RFC4180.CSVRecordOversize")
+	@Label("CSV Record Oversize")
+	@Category({"RFC4180", "Parsing"})
+	@Description("A record longer than the reader's oversize threshold")
+	@StackTrace(false)
+	static final class RecordOversize extends Event{
+		@Label("Record Number")
+		int recordNumber;
+
+		@Label("Chars")
+		int chars;
+
+		@Label("Threshold")
+		int threshold;
+	}
+}
@@ -0,0 +1,69 @@
+package RFC4180;
+
+import java.nio.file.Path;
+
+// How one file of a CSVIngestor went, taken when its reader is done with it
+public final class CSVFileStats{
+	private final Path file;
+	private final long recordCount;
+	private final long charsConsumed;
+	private final long skippedCount;
+	private final long quarantinedCount;
+	private final long nanos; // from opening the file to its last record being queued
+	private final Throwable error;
+
+	CSVFileStats(Path file, long recordCount, long charsConsumed, long skippedCount, long quarantinedCount, long nanos, Throwable error){
+		this.file = file;
+		this.recordCount = recordCount;
+		this.charsConsumed = charsConsumed;
+		this.skippedCount = skippedCount;
+		this.quarantinedCount = quarantinedCount;
+		this.nanos = nanos;
+		this.error = error;
+	}
+
+	// getters
+	public Path getFile(){
+		return file;
+	}
+
+	public long getRecordCount(){
+		return recordCount;
+	}
+
+	public long getCharsConsumed(){
+		return charsConsumed;
+	}
+
+	public long getSkippedCount(){
+		return skippedCount;
+	}
+
+	public long getQuarantinedCount(){
+		return quarantinedCount;
+	}
+
+	// Includes time blocked on a full queue, a slow consumer shows up here too
+	public long getNanos(){
+		return nanos;
+	}
+
+	public double getCharsPerSecond(){
+		return (nanos == 0)? 0 : charsConsumed * 1e9 / nanos;
+	}
+
+	public double getRecordsPerSecond(){
+		return (nanos == 0)? 0 : recordCount * 1e9 / nanos;
+	}
+
+	// What stopped the file early (a CSVFormatException under FAIL, an I/O failure, or an Error), null when it was read to the end
+	public Throwable getError(){
+		return error;
+	}
+
+	@Override
+	public String toString(){
+		return String.format("%s: %d records, %.1f M chars/s%s", file, recordCount, getCharsPerSecond() / 1e6,
+			(error == null)? "" : ", failed: " + error.getMessage());
+	}
+}
@@ -1,15 +1,18 @@
 package RFC4180;
 
-public final class CSVFormatException extends RuntimeException{
+import java.nio.file.Path;
+
+public class CSVFormatException extends RuntimeException{
 	private final int recordNumber;
 	private final int expectedColumns;
 	private final int actualColumns;
 	private final String rawRecord;
 	private final String mode;
 	private final boolean enabledTrim;
+	private Path file; // set when the reader was reading a known file, see CSVIngestor
 
-	// Master Constructor
-	private CSVFormatException(String message, int recordNumber, int expectedColumns, int actualColumns, String rawRecord, String mode, boolean enabledTrim){
+	// Master Constructor, also used by CSVLimitException
+	CSVFormatException(String message, int recordNumber, int expectedColumns, int actualColumns, String rawRecord, String mode, boolean enabledTrim){
 		super(message);
 		
 		this.recordNumber = recordNumber;
@@ -33,6 +36,22 @@ public final class CSVFormatException extends RuntimeException{
 		);
 	}
 
+	// A well-formed field that cannot be read as the requested type, rawRecord holds the field
+	public CSVFormatException(int recordNumber, int columnNumber, String rawField, String type){
+		this("cannot read \"" + rawField + "\" as " + type + "\n\tin CSV File (Line " + recordNumber + ", Column " + columnNumber + ")",
+			recordNumber, -1, columnNumber, rawField, null, false
+		);
+	}
+
+	void setFile(Path file){
+		this.file = file;
+	}
+
+	@Override
+	public String getMessage(){
+		return (file == null)? super.getMessage() : super.getMessage() + " of " + file;
+	}
+
 	// getters
 	public int recordNumber(){
 		return recordNumber;	
@@ -57,4 +76,9 @@ public final class CSVFormatException extends RuntimeException{
 	public boolean isTrimEnabled(){
 		return enabledTrim;
 	}
+
+	// File the record came from, null when the reader was given a plain Reader
+	public Path getFile(){
+		return file;
+	}
 } 
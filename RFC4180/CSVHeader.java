@@ -0,0 +1,160 @@
+package RFC4180;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Column names from the first record, shared by every CSVRecord of the reader.
+// Names resolve through a perfect hash built once (hash and displace): a name's bucket gives a
+// seed that sends it to a slot no other name uses, so a lookup is two table reads and one equals().
+// When a name appears twice the first column wins.
+public final class CSVHeader{
+	private final String[] names; // in column order
+
+	private final int[] seeds; // per bucket
+	private final int shift; // slot = ((hash ^ seed) * GOLDEN) >>> shift
+	private final String[] slotNames;
+	private final int[] slotColumns;
+
+	private static final int GOLDEN = 0x9E3779B9;
+	private static final int MAX_TRIES = 1 << 16; // seeds tried per bucket before its names are scanned instead
+
+	// Names whose String.hashCode() collides with an earlier one, or whose bucket found no seed; rare enough to scan
+	private final String[] overflowNames;
+	private final int[] overflowColumns;
+
+	CSVHeader(String[] names){
+		this.names = names.clone();
+
+		List<String> keys = new ArrayList<>();
+		List<Integer> columns = new ArrayList<>();
+		List<String> overflow = new ArrayList<>();
+		List<Integer> overflowCols = new ArrayList<>();
+		for(int c = 0; c<names.length; c++){
+			String name = names[c];
+			if(keys.contains(name) || overflow.contains(name)){
+				continue; // duplicate, first column wins
+			}
+			boolean hashTaken = false;
+			for(String k:keys){
+				hashTaken |= (k.hashCode() == name.hashCode());
+			}
+			if(hashTaken){
+				overflow.add(name);
+				overflowCols.add(c);
+			}else{
+				keys.add(name);
+				columns.add(c);
+			}
+		}
+
+		int size = 2;
+		while(size < 2 * keys.size()){
+			size <<= 1;
+		}
+		int buckets = Math.max(1, size >> 2);
+		this.seeds = new int[buckets];
+		this.shift = 32 - Integer.numberOfTrailingZeros(size);
+		this.slotNames = new String[size];
+		this.slotColumns = new int[size];
+
+		// Place the fullest buckets first, while most slots are still free
+		List<List<Integer>> byBucket = new ArrayList<>();
+		for(int b = 0; b<buckets; b++){
+			byBucket.add(new ArrayList<>());
+		}
+		for(int k = 0; k<keys.size(); k++){
+			byBucket.get(bucket(keys.get(k).hashCode(), buckets)).add(k);
+		}
+		Integer[] order = new Integer[buckets];
+		for(int b = 0; b<buckets; b++){
+			order[b] = b;
+		}
+		Arrays.sort(order, (x, y) -> byBucket.get(y).size() - byBucket.get(x).size());
+
+		int[] slots = new int[keys.size()];
+		for(int b:order){
+			List<Integer> members = byBucket.get(b);
+			if(members.isEmpty()){
+				break;
+			}
+			boolean placed = false;
+			for(int t = 1; t<=MAX_TRIES && !placed; t++){
+				int seed = t * GOLDEN;
+				if(fits(members, keys, seed, slots)){
+					seeds[b] = seed;
+					for(int i = 0; i<members.size(); i++){
+						slotNames[slots[i]] = keys.get(members.get(i));
+						slotColumns[slots[i]] = columns.get(members.get(i));
+					}
+					placed = true;
+				}
+			}
+			if(!placed){
+				for(int k:members){
+					overflow.add(keys.get(k));
+					overflowCols.add(columns.get(k));
+				}
+			}
+		}
+
+		this.overflowNames = overflow.toArray(new String[0]);
+		this.overflowColumns = new int[overflowCols.size()];
+		for(int i = 0; i<overflowColumns.length; i++){
+			overflowColumns[i] = overflowCols.get(i);
+		}
+	}
+
+	private boolean fits(List<Integer> members, List<String> keys, int seed, int[] slots){
+		for(int i = 0; i<members.size(); i++){
+			int slot = slot(keys.get(members.get(i)).hashCode(), seed);
+			if(slotNames[slot] != null){
+				return false;
+			}
+			for(int j = 0; j<i; j++){
+				if(slots[j] == slot){
+					return false;
+				}
+			}
+			slots[i] = slot;
+		}
+		return true;
+	}
+
+	// The seed goes in before the multiply, so even a zero hash ("") lands wherever the seed sends it
+	private int slot(int hash, int seed){
+		return ((hash ^ seed) * GOLDEN) >>> shift;
+	}
+
+	// Low bits of String.hashCode() alone are weak, the high half is folded in like HashMap does
+	private static int bucket(int hash, int buckets){
+		return (hash ^ (hash >>> 16)) & (buckets-1);
+	}
+
+	// 0-based column of name in the records, -1 when there is no such column
+	public int indexOf(String name){
+		int hash = name.hashCode();
+		int slot = slot(hash, seeds[bucket(hash, seeds.length)]);
+		if(name.equals(slotNames[slot])){
+			return slotColumns[slot];
+		}
+		for(int i = 0; i<overflowNames.length; i++){
+			if(name.equals(overflowNames[i])){
+				return overflowColumns[i];
+			}
+		}
+		return -1;
+	}
+
+	public int getColumnCount(){
+		return names.length;
+	}
+
+	public String getName(int column){
+		return names[column];
+	}
+
+	public List<String> getNames(){
+		return List.of(names);
+	}
+}
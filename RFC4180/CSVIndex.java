@@ -0,0 +1,333 @@
+package RFC4180;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Where every Nth record of an input starts, so a CSVReader can be opened at any record without
+// parsing all the ones before it (CSVReader.Builder.build(Path, CSVIndex, long)).
+// An entry is always at a record start, outside quotes, where the FSM is in FIELD_START; besides
+// the offset it keeps the record number and the column count the parser expects from there on.
+// Built while parsing (Builder.recordIndex()) or by a fast scan of a UTF-8 file (Builder.buildIndex()),
+// which only follows quotes and line endings and so assumes well-formed input.
+public final class CSVIndex{
+	private static final int MAGIC = 0x43535649; // "CSVI"
+	private static final int VERSION = 1;
+	private static final int SCAN_BUFFER = 1 << 20;
+
+	private final int interval;
+	private long[] recordNumbers; // 1-based, ascending
+	private long[] charOffsets;
+	private long[] byteOffsets; // -1 when built from chars, a Reader then has to skip to the char offset
+	private int[] columnCounts; // 0 when not known yet
+	private int size;
+	private long recordCount = -1; // -1 until the whole input has been seen
+
+	CSVIndex(int interval){
+		if(interval <= 0){
+			throw new IllegalArgumentException("Index interval must be positive");
+		}
+		this.interval = interval;
+		this.recordNumbers = new long[16];
+		this.charOffsets = new long[16];
+		this.byteOffsets = new long[16];
+		this.columnCounts = new int[16];
+	}
+
+	void add(long recordNumber, long charOffset, long byteOffset, int columnCount){
+		if(size == recordNumbers.length){
+			int capacity = size + (size >> 1);
+			recordNumbers = Arrays.copyOf(recordNumbers, capacity);
+			charOffsets = Arrays.copyOf(charOffsets, capacity);
+			byteOffsets = Arrays.copyOf(byteOffsets, capacity);
+			columnCounts = Arrays.copyOf(columnCounts, capacity);
+		}
+		recordNumbers[size] = recordNumber;
+		charOffsets[size] = charOffset;
+		byteOffsets[size] = byteOffset;
+		columnCounts[size] = columnCount;
+		size++;
+	}
+
+	// Also drops entries of a blank last record, which a reader does not return
+	void setRecordCount(long recordCount){
+		this.recordCount = recordCount;
+		while(size > 0 && recordNumbers[size-1] > Math.max(recordCount, 1)){
+			size--;
+		}
+	}
+
+	public int getInterval(){
+		return interval;
+	}
+
+	// Number of entries
+	public int size(){
+		return size;
+	}
+
+	// Records in the input, headers included; -1 when the index was taken before the reader reached the end
+	public long getRecordCount(){
+		return recordCount;
+	}
+
+	public long getRecordNumber(int entry){
+		checkEntry(entry);
+		return recordNumbers[entry];
+	}
+
+	public long getCharOffset(int entry){
+		checkEntry(entry);
+		return charOffsets[entry];
+	}
+
+	public long getByteOffset(int entry){
+		checkEntry(entry);
+		return byteOffsets[entry];
+	}
+
+	public int getColumnCount(int entry){
+		checkEntry(entry);
+		return columnCounts[entry];
+	}
+
+	private void checkEntry(int entry){
+		if(entry < 0 || entry >= size){
+			throw new IndexOutOfBoundsException(entry);
+		}
+	}
+
+	// Last entry at or before the record, the one to open a reader at
+	public int floor(long recordNumber){
+		if(size == 0 || recordNumber < recordNumbers[0]){
+			throw new NoSuchElementException("No indexed record at or before " + recordNumber);
+		}
+		int entry = Arrays.binarySearch(recordNumbers, 0, size, recordNumber);
+		return (entry >= 0)? entry : -entry - 2;
+	}
+
+	// count records drawn uniformly from the whole input, each read by a reader opened at the nearest entry
+	// before it; with a header only data records are drawn. Returned in file order, detached from their readers.
+	public List<CSVRecord> sample(Path file, CSVReader.Builder config, int count, Random random){
+		if(recordCount < 0){
+			throw new IllegalStateException("The index does not cover the whole input");
+		}
+		long first = config.hasHeader()? 2 : 1;
+		long[] picks = new long[count];
+		for(int i = 0; i<count; i++){
+			picks[i] = (recordCount >= first)? first + random.nextLong(recordCount - first + 1) : -1;
+		}
+		Arrays.sort(picks);
+
+		List<CSVRecord> sample = new ArrayList<>(count);
+		for(long record:picks){
+			if(record == -1){
+				continue;
+			}
+			try(CSVReader reader = config.build(file, this, record)){
+				if(reader.hasNext()){
+					sample.add(reader.next().snapshot());
+				}
+			}catch(NoSuchElementException e){
+				// blank last line
+			}
+		}
+		return sample;
+	}
+
+	// -----------------------------------------------------
+	// Sidecar files
+
+	// data.csv -> data.csv.idx
+	public static Path sidecarOf(Path file){
+		return file.resolveSibling(file.getFileName() + ".idx");
+	}
+
+	public void save(Path path){
+		try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))){
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(interval);
+			out.writeLong(recordCount);
+			out.writeInt(size);
+			for(int i = 0; i<size; i++){
+				out.writeLong(recordNumbers[i]);
+				out.writeLong(charOffsets[i]);
+				out.writeLong(byteOffsets[i]);
+				out.writeInt(columnCounts[i]);
+			}
+		}catch(IOException e){
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public static CSVIndex load(Path path){
+		try(DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))){
+			if(in.readInt() != MAGIC || in.readInt() != VERSION){
+				throw new IOException("Not a CSVIndex file: " + path);
+			}
+			CSVIndex index = new CSVIndex(in.readInt());
+			index.recordCount = in.readLong();
+			int entries = in.readInt();
+			for(int i = 0; i<entries; i++){
+				index.add(in.readLong(), in.readLong(), in.readLong(), in.readInt());
+			}
+			return index;
+		}catch(IOException e){
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	// -----------------------------------------------------
+	// Fast scan
+
+	// Byte kinds of the scan, anything PLAIN is field content
+	private static final int PLAIN = 0, QUOTE = 1, LF = 2, CR = 3, DELIMITER = 4, SPACE = 5;
+
+	// UTF-16 units a UTF-8 byte adds: one per lead byte, two for a 4-byte sequence, none for continuations
+	private static final byte[] WIDTH = new byte[256];
+	static{
+		for(int u = 0; u<256; u++){
+			WIDTH[u] = (byte)(((u & 0xC0) == 0x80)? 0 : ((u & 0xF8) == 0xF0)? 2 : 1);
+		}
+	}
+
+	// Walks the UTF-8 bytes of a file following quote parity and line endings only, no field is built.
+	// Counts records the way CSVReader returns them: a last record without any field content is dropped.
+	static CSVIndex scan(Path file, CSVReader.Mode mode, char[] delimiters, boolean trimSpaces, int interval){
+		CSVIndex index = new CSVIndex(interval);
+		byte[] kinds = new byte[256];
+		kinds['\"'] = QUOTE;
+		kinds['\n'] = LF;
+		kinds['\r'] = CR;
+		for(char d:delimiters){
+			if(d != '\0') kinds[d] = DELIMITER;
+		}
+		if(trimSpaces){
+			kinds[' '] = SPACE;
+		}
+		boolean lenient = (mode == CSVReader.Mode.LENIENT);
+
+		long records = 0; // ended so far
+		long chars = 0; // UTF-16 units before the current byte
+		int columns = 1; // of the first record, counted until it ends
+		boolean inQuotes = false;
+		boolean prevQuote = false; // the last byte closed a quoted run, another quote would be an escaped one
+		boolean content = false; // current record has field content
+		boolean lastContent = false; // so had the last ended one
+		boolean started = false; // current record has any byte
+		boolean pendingCR = false; // LENIENT: a CR outside quotes, a record ending unless an LF follows
+
+		ByteBuffer buf = ByteBuffer.allocate(SCAN_BUFFER);
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+			long pos = 0; // byte offset of buf[0]
+			index.add(1, 0, 0, 0);
+			while(channel.read(buf.clear()) != -1){
+				buf.flip();
+				byte[] bytes = buf.array();
+				for(int i = 0, n = buf.limit(); i<n; i++){
+					int u = bytes[i] & 0xFF;
+					int kind = kinds[u];
+					if(pendingCR){
+						pendingCR = false;
+						if(kind != LF){
+							// the CR alone ended the record, this byte opens the next one
+							records++;
+							lastContent = content;
+							content = started = false;
+							if(records == 1) index.setColumns(columns);
+							if(records % interval == 0){
+								index.add(records + 1, chars, pos + i, columns);
+							}
+						}
+					}
+					chars += WIDTH[u];
+
+					if(kind == PLAIN){
+						content = started = true;
+						prevQuote = false;
+					}else if(inQuotes){
+						if(kind == QUOTE){
+							inQuotes = false;
+							prevQuote = true;
+						}else{
+							content = true;
+						}
+					}else{
+						switch(kind){
+							case QUOTE:
+								if(prevQuote){
+									content = true; // "" inside quotes
+								}
+								inQuotes = true;
+								break;
+							case LF:
+								records++;
+								lastContent = content;
+								content = false;
+								if(records == 1) index.setColumns(columns);
+								if(records % interval == 0){
+									index.add(records + 1, chars, pos + i + 1, columns);
+								}
+								break;
+							case CR:
+								pendingCR = lenient;
+								break;
+							case DELIMITER:
+								if(records == 0) columns++;
+								break;
+							default:
+								break; // a space trimmed away
+						}
+						started = (kind != LF);
+						prevQuote = false;
+					}
+				}
+				pos += buf.limit();
+			}
+		}catch(IOException e){
+			throw new UncheckedIOException(e);
+		}
+
+		if(pendingCR){
+			records++;
+			lastContent = content;
+			content = started = false;
+		}
+		if(started){
+			// unterminated last record
+			if(content){
+				records++;
+			}
+		}else if(records > 0 && !lastContent){
+			records--;
+		}
+		if(records >= 1 && index.columnCounts[0] == 0){
+			index.setColumns(columns);
+		}
+		index.setRecordCount(records);
+		return index;
+	}
+
+	// The first record's column count also applies to the entries made before it was known
+	private void setColumns(int columns){
+		for(int i = 0; i<size; i++){
+			if(columnCounts[i] == 0) columnCounts[i] = columns;
+		}
+	}
+}
@@ -0,0 +1,341 @@
+package RFC4180;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.InterruptedIOException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Reads many UTF-8 files, each with its own CSVReader from the same Builder, on a fixed set of worker
+// threads from any ThreadFactory (virtual threads on newer JDKs), and hands their records out as one iterator.
+// Workers queue records in batches on bounded queues, so a slow consumer stalls them instead of
+// letting records pile up: at most maxOpenFiles files are open, each with a few batches queued.
+// PER_FILE returns every record of a file before any of the next one, in the given order;
+// INTERLEAVED returns batches as they are parsed. A file failing under FAIL is stopped there and its
+// exception (carrying the file, see CSVFormatException.getFile()) is thrown by next(); the other files go on.
+public final class CSVIngestor implements Iterator<CSVRecord>, AutoCloseable{
+	public enum Ordering{PER_FILE, INTERLEAVED};
+
+	static final int BATCH_SIZE = 512; // records per queued batch
+	static final int QUEUED_BATCHES = 4; // per open file
+
+	private static final AtomicLong THREADS = new AtomicLong();
+
+	private static final class Source{
+		final Path file;
+		final BlockingQueue<Batch> queue; // its own under PER_FILE, the shared one under INTERLEAVED
+
+		Source(Path file, BlockingQueue<Batch> queue){
+			this.file = file;
+			this.queue = queue;
+		}
+	}
+
+	private static final class Batch{
+		final Source source;
+		final List<CSVRecord> records; // null for the end of a file
+		final Throwable error; // why the file ended early, a RuntimeException or an Error
+
+		Batch(Source source, List<CSVRecord> records, Throwable error){
+			this.source = source;
+			this.records = records;
+			this.error = error;
+		}
+	}
+
+	private static final Source STOP = new Source(null, null); // no more files for a PER_FILE worker
+
+	private final CSVReader.Builder config;
+	private final List<Path> files;
+	private final Ordering ordering;
+	private final Thread[] workers;
+	private final ConcurrentLinkedQueue<CSVFileStats> stats;
+	private volatile boolean closed;
+
+	// INTERLEAVED: workers claim files in turn and all queue onto one queue
+	private final AtomicInteger nextFile;
+	private final BlockingQueue<Batch> shared;
+	private int finishedFiles;
+
+	// PER_FILE: the consumer hands out files as it finishes them, keeping maxOpenFiles in flight
+	private final BlockingQueue<Source> dispatched;
+	private final ArrayDeque<Source> inFlight;
+	private int dispatchedFiles;
+
+	// Consumer side
+	private Batch batch;
+	private int batchPos;
+	private Throwable pendingError;
+	private Path currentFile;
+
+	CSVIngestor(CSVReader.Builder config, List<Path> files, ThreadFactory threadFactory, int maxOpenFiles, Ordering ordering){
+		if(maxOpenFiles <= 0){
+			throw new IllegalArgumentException("Open file limit must be positive");
+		}
+		this.config = config;
+		this.files = List.copyOf(files);
+		this.ordering = ordering;
+		this.stats = new ConcurrentLinkedQueue<>();
+		this.nextFile = new AtomicInteger();
+
+		int threads = Math.min(maxOpenFiles, this.files.size());
+		this.workers = new Thread[threads];
+		if(ordering == Ordering.INTERLEAVED){
+			this.shared = new ArrayBlockingQueue<>(Math.max(threads, 1) * QUEUED_BATCHES);
+			this.dispatched = null;
+			this.inFlight = null;
+		}else{
+			this.shared = null;
+			this.dispatched = new LinkedBlockingQueue<>();
+			this.inFlight = new ArrayDeque<>(threads);
+			for(int i = 0; i<threads; i++){
+				dispatch();
+			}
+		}
+
+		for(int i = 0; i<threads; i++){
+			workers[i] = (threadFactory != null)? threadFactory.newThread(this::work) : defaultThread(this::work);
+		}
+		for(Thread worker:workers){
+			worker.start();
+		}
+	}
+
+	private static Thread defaultThread(Runnable task){
+		Thread t = new Thread(task, "csv-ingest-" + THREADS.incrementAndGet());
+		t.setDaemon(true);
+		return t;
+	}
+
+	// PER_FILE: the next file goes to the workers, or once all have gone, one STOP per worker
+	private void dispatch(){
+		if(dispatchedFiles < files.size()){
+			Source source = new Source(files.get(dispatchedFiles++), new ArrayBlockingQueue<>(QUEUED_BATCHES));
+			inFlight.add(source);
+			dispatched.add(source);
+			if(dispatchedFiles == files.size()){
+				for(int i = 0; i<workers.length; i++){
+					dispatched.add(STOP);
+				}
+			}
+		}
+	}
+
+	// -----------------------------------------------------
+	// Workers
+
+	private void work(){
+		try{
+			while(!closed){
+				Source source;
+				if(ordering == Ordering.INTERLEAVED){
+					int i = nextFile.getAndIncrement();
+					if(i >= files.size()){
+						return;
+					}
+					source = new Source(files.get(i), shared);
+				}else{
+					source = dispatched.take();
+					if(source == STOP){
+						return;
+					}
+				}
+				ingest(source);
+			}
+		}catch(InterruptedException e){
+			// closed
+		}
+	}
+
+	private void ingest(Source source) throws InterruptedException{
+		long start = System.nanoTime();
+		long records = 0, chars = 0, skipped = 0, quarantined = 0;
+		Throwable error = null;
+		CSVReader reader = null;
+		List<CSVRecord> pending = new ArrayList<>(BATCH_SIZE);
+		try{
+			Reader input = new InputStreamReader(Files.newInputStream(source.file), StandardCharsets.UTF_8);
+			try{
+				reader = config.build(input);
+			}catch(RuntimeException e){
+				input.close();
+				throw e;
+			}
+			reader.setFile(source.file);
+			while(reader.hasNext()){
+				try{
+					pending.add(reader.next().snapshot()); // views would not survive the next record
+				}catch(NoSuchElementException e){
+					break; // blank last line
+				}
+				records++;
+				if(pending.size() == BATCH_SIZE){
+					source.queue.put(new Batch(source, pending, null));
+					pending = new ArrayList<>(BATCH_SIZE);
+				}
+			}
+		}catch(CSVFormatException e){
+			e.setFile(source.file); // the header is read while building
+			error = e;
+		}catch(IOException e){
+			error = new UncheckedIOException(e);
+		}catch(RuntimeException | Error e){
+			error = e; // an Error too is the consumer's to see, the worker goes on with the next file
+		}finally{
+			if(reader != null){
+				chars = reader.getCharsConsumed();
+				skipped = reader.getSkippedCount();
+				quarantined = reader.getQuarantinedCount();
+				try{
+					reader.close();
+				}catch(UncheckedIOException e){
+					error = (error != null)? error : e;
+				}
+			}
+		}
+		try{
+			if(!pending.isEmpty()){
+				source.queue.put(new Batch(source, pending, null)); // records before an error still count
+			}
+			stats.add(new CSVFileStats(source.file, records, chars, skipped, quarantined, System.nanoTime() - start, error));
+		}finally{
+			// always, or advance() would wait for the file forever; after close() nothing takes it, and a
+			// worker interrupted by close() has had its interrupt cleared, so a put could block for good
+			if(!closed){
+				source.queue.put(new Batch(source, null, error));
+			}
+		}
+	}
+
+	// -----------------------------------------------------
+	// Consumer
+
+	@Override
+	public boolean hasNext(){
+		return advance();
+	}
+
+	@Override
+	public CSVRecord next(){
+		if(!advance()){
+			throw new NoSuchElementException();
+		}
+		if(pendingError != null){
+			Throwable e = pendingError;
+			pendingError = null;
+			if(e instanceof Error){
+				throw (Error)e;
+			}
+			throw (RuntimeException)e;
+		}
+		return batch.records.get(batchPos++);
+	}
+
+	// File of the record (or exception) last returned by next()
+	public Path getCurrentFile(){
+		return currentFile;
+	}
+
+	// Files done so far, in the order they finished
+	public List<CSVFileStats> getFileStats(){
+		return new ArrayList<>(stats);
+	}
+
+	// Records as next() returns them; closing the stream closes the ingestor
+	public Stream<CSVRecord> stream(){
+		Spliterator<CSVRecord> spliterator = Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL);
+		return StreamSupport.stream(spliterator, false).onClose(this::close);
+	}
+
+	private boolean advance(){
+		if(closed){
+			return false;
+		}
+		while(pendingError == null && (batch == null || batchPos == batch.records.size())){
+			BlockingQueue<Batch> queue;
+			if(ordering == Ordering.INTERLEAVED){
+				if(finishedFiles == files.size()){
+					return false;
+				}
+				queue = shared;
+			}else{
+				if(inFlight.isEmpty()){
+					return false;
+				}
+				queue = inFlight.peek().queue;
+			}
+			Batch next;
+			try{
+				next = queue.take();
+			}catch(InterruptedException e){
+				Thread.currentThread().interrupt();
+				throw new UncheckedIOException(new InterruptedIOException("Interrupted while waiting for ingested records"));
+			}
+			currentFile = next.source.file;
+			if(next.records == null){
+				fileDone();
+				pendingError = next.error;
+			}else{
+				batch = next;
+				batchPos = 0;
+			}
+		}
+		return true;
+	}
+
+	private void fileDone(){
+		if(ordering == Ordering.INTERLEAVED){
+			finishedFiles++;
+		}else{
+			inFlight.poll();
+			dispatch();
+		}
+	}
+
+	// Stops the workers, closing the files they have open
+	@Override
+	public void close(){
+		closed = true;
+		for(Thread worker:workers){
+			worker.interrupt();
+		}
+		// nothing drains the queues from here on, emptying them frees any worker still putting a batch
+		if(shared != null){
+			shared.clear();
+		}else{
+			dispatched.clear();
+			for(Source source:inFlight){
+				source.queue.clear();
+			}
+		}
+		for(Thread worker:workers){
+			try{
+				worker.join();
+			}catch(InterruptedException e){
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+}
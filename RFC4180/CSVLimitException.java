@@ -0,0 +1,37 @@
+package RFC4180;
+
+// A record that broke one of the Builder's size limits (maxRecordChars, maxFieldChars, maxColumns).
+// rawRecord only holds the start of the record, which may be far longer than anyone wants in a message.
+public final class CSVLimitException extends CSVFormatException{
+	public enum Limit{RECORD_CHARS, FIELD_CHARS, COLUMNS};
+
+	private final Limit limit;
+	private final int limitValue;
+
+	public CSVLimitException(Limit limit, int limitValue, int recordNumber, int columnNumber, String rawRecord){
+		super(describe(limit, limitValue) + "\n\tin CSV File (Line " + recordNumber + ", Column " + columnNumber + ")",
+			recordNumber, -1, columnNumber, rawRecord, null, false
+		);
+		this.limit = limit;
+		this.limitValue = limitValue;
+	}
+
+	private static String describe(Limit limit, int limitValue){
+		switch(limit){
+			case RECORD_CHARS:
+				return "record longer than " + limitValue + " chars";
+			case FIELD_CHARS:
+				return "field longer than " + limitValue + " chars";
+			default:
+				return "record with more than " + limitValue + " columns";
+		}
+	}
+
+	public Limit getLimit(){
+		return limit;
+	}
+
+	public int getLimitValue(){
+		return limitValue;
+	}
+}
@@ -0,0 +1,288 @@
+package RFC4180;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Parses one seekable UTF-8 file on several cores.
+//
+// Phase 1 (parallel): every chunk is scanned once, counting quotes and speculatively noting
+// the first LF that would be outside quotes if the chunk started outside quotes, and the first
+// one if it started inside quotes, along with the record endings seen under either guess.
+// Phase 2 (sequential, one step per chunk): quote parity is carried from chunk to chunk, which
+// picks the right guess and yields record aligned ranges and the records before each of them.
+// Phase 3 (parallel): every range is parsed by its own CSVByteReader over the mapped file,
+// numbering its records (and errors) from where the previous range stops.
+public final class CSVParallelReader implements Iterator<List<CSVRecord>>, AutoCloseable{
+	static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024; // 8 MB
+
+	private static final class Range{
+		List<CSVRecord> records = new ArrayList<>();
+		CSVFormatException error;
+	}
+
+	private final FileChannel file;
+	private final ForkJoinPool pool;
+	private long[] starts; // range i is [starts[i], starts[i+1])
+	private int[] recordsBefore;
+	private final int rangeCount;
+
+	// Configurations
+	private final CSVReader.Mode mode;
+	private final char[] delimiters;
+	private final boolean trimSpaces;
+	private int expectedColumnCount;
+	private boolean columnsResolved;
+
+	// Ordered iteration
+	private final List<ForkJoinTask<Range>> tasks;
+	private final int window;
+	private int nextRange;
+	private CSVFormatException pendingError;
+	private boolean unordered;
+
+	CSVParallelReader(Path path, ForkJoinPool pool, int chunkSize, CSVReader.Mode mode, char[] delimiters, boolean trimSpaces){
+		if(chunkSize <= 0){
+			throw new IllegalArgumentException("Chunk size must be positive");
+		}
+		this.pool = pool;
+		this.mode = mode;
+		this.delimiters = delimiters;
+		this.trimSpaces = trimSpaces;
+		this.window = 2 * pool.getParallelism();
+
+		try{
+			this.file = FileChannel.open(path, StandardOpenOption.READ);
+		}catch(IOException e){
+			throw new UncheckedIOException(e);
+		}
+		try{
+			resolveRanges(file.size(), chunkSize);
+		}catch(IOException | RuntimeException e){
+			try{
+				file.close();
+			}catch(IOException suppressed){
+				e.addSuppressed(suppressed);
+			}
+			throw (e instanceof IOException)? new UncheckedIOException((IOException)e) : (RuntimeException)e;
+		}
+		this.rangeCount = starts.length - 1;
+		this.tasks = new ArrayList<>(rangeCount);
+	}
+
+	// Ranges after the first one need the column count of record 1, read once iteration starts
+	// so that a bad record 1 is thrown by next() like any other error, not by the Builder
+	private void resolveColumnCount(){
+		if(columnsResolved || rangeCount <= 1){
+			return;
+		}
+		columnsResolved = true;
+		try{
+			expectedColumnCount = reader(0).next().getRecordSize();
+		}catch(NoSuchElementException | CSVFormatException e){
+			expectedColumnCount = 0; // range 0 reports a bad record 1, before anything of the later ranges
+		}
+	}
+
+	private void resolveRanges(long fileSize, int chunkSize){
+		int chunks = (int)((fileSize + chunkSize - 1) / chunkSize);
+
+		List<ForkJoinTask<long[]>> scans = new ArrayList<>(chunks);
+		for(int i = 0; i<chunks; i++){
+			long from = (long)i * chunkSize;
+			long to = Math.min(from + chunkSize, fileSize);
+			scans.add(pool.submit(() -> scan(from, to, fileSize)));
+		}
+
+		List<Long> bounds = new ArrayList<>();
+		List<Long> before = new ArrayList<>();
+		bounds.add(0L);
+		before.add(0L);
+		long records = 0;
+		int inQuotes = 0;
+		for(int i = 0; i<chunks; i++){
+			long[] s = scans.get(i).join();
+			long lf = s[1 + inQuotes];
+			if(i > 0 && lf != -1 && lf+1 < fileSize){
+				bounds.add(lf+1);
+				before.add(records + s[5 + inQuotes]);
+			}
+			records += s[3 + inQuotes];
+			inQuotes ^= (int)s[0];
+		}
+		if(fileSize > 0){
+			bounds.add(fileSize);
+		}
+
+		starts = new long[bounds.size()];
+		recordsBefore = new int[bounds.size()];
+		for(int i = 0; i<starts.length; i++){
+			starts[i] = bounds.get(i);
+			recordsBefore[i] = (i < before.size())? (int)(long)before.get(i) : 0;
+		}
+	}
+
+	// Index 0: quote parity of the chunk. Then, for a chunk starting outside / inside quotes:
+	// 1-2 the first LF outside quotes, 3-4 record endings in the chunk, 5-6 endings up to that first LF.
+	// Lone CRs end records in LENIENT mode, so one byte past the chunk is mapped for their lookahead.
+	private long[] scan(long from, long to, long fileSize){
+		MappedByteBuffer buf;
+		try{
+			buf = file.map(FileChannel.MapMode.READ_ONLY, from, Math.min(to + 1, fileSize) - from);
+		}catch(IOException e){
+			throw new UncheckedIOException(e);
+		}
+
+		boolean lenient = (mode == CSVReader.Mode.LENIENT);
+		int parity = 0;
+		long[] firstLF = {-1, -1};
+		long[] ends = {0, 0};
+		long[] endsToFirstLF = {0, 0};
+		for(int i = 0, n = (int)(to - from); i<n; i++){
+			byte b = buf.get(i);
+			if(b == '\"'){
+				parity ^= 1;
+			}else if(b == '\n'){
+				ends[parity]++;
+				if(firstLF[parity] == -1){
+					firstLF[parity] = from + i;
+					endsToFirstLF[parity] = ends[parity];
+				}
+			}else if(b == '\r' && lenient && (i+1 == buf.limit() || buf.get(i+1) != '\n')){
+				ends[parity]++;
+			}
+		}
+		return new long[]{parity, firstLF[0], firstLF[1], ends[0], ends[1], endsToFirstLF[0], endsToFirstLF[1]};
+	}
+
+	private CSVByteReader reader(int range){
+		CSVByteReader r = new CSVByteReader(file, starts[range], starts[range+1], mode, delimiters, trimSpaces, false);
+		if(range < rangeCount-1){
+			r.endsAtRecordBoundary();
+		}
+		return r;
+	}
+
+	// Reader is not closed, that would close the shared FileChannel
+	private Range parse(int range){
+		Range result = new Range();
+		CSVByteReader r = reader(range);
+		if(range > 0){
+			r.resume(expectedColumnCount, recordsBefore[range]);
+		}
+		try{
+			while(r.hasNext()){
+				result.records.add(r.next());
+			}
+		}catch(CSVFormatException e){
+			result.error = e;
+		}catch(NoSuchElementException e){
+			// blank last line
+		}
+		return result;
+	}
+
+	public int getRangeCount(){
+		return rangeCount;
+	}
+
+	@Override
+	public boolean hasNext(){
+		return nextRange < rangeCount || pendingError != null;
+	}
+
+	// Batches in file order, one per range
+	@Override
+	public List<CSVRecord> next() throws NoSuchElementException{
+		if(pendingError != null){
+			CSVFormatException e = pendingError;
+			pendingError = null;
+			nextRange = rangeCount;
+			throw e;
+		}
+		if(!hasNext()){
+			throw new NoSuchElementException();
+		}
+
+		resolveColumnCount();
+		while(tasks.size() < rangeCount && tasks.size() < nextRange + window){
+			int range = tasks.size();
+			tasks.add(pool.submit(() -> parse(range)));
+		}
+
+		Range r = tasks.get(nextRange).join();
+		tasks.set(nextRange, null);
+		nextRange++;
+
+		if(r.error != null){
+			// Records before the bad one are still handed out first, as the sequential reader does
+			pendingError = r.error;
+			if(!r.records.isEmpty()){
+				return r.records;
+			}
+			return next();
+		}
+		return r.records;
+	}
+
+	// Fast path: batches go to the sink from pool threads as soon as their range is parsed,
+	// so the sink must be thread safe. The first error in file order is thrown once all ranges are done.
+	public void forEachUnordered(Consumer<? super List<CSVRecord>> sink){
+		if(nextRange > 0 || unordered){
+			throw new IllegalStateException("Reader already consumed");
+		}
+		unordered = true;
+		resolveColumnCount();
+
+		List<ForkJoinTask<Range>> all = new ArrayList<>(rangeCount);
+		for(int i = 0; i<rangeCount; i++){
+			int range = i;
+			all.add(pool.submit(() -> {
+				Range r = parse(range);
+				if(!r.records.isEmpty()){
+					sink.accept(r.records);
+				}
+				r.records = null; // only the error is needed from here on
+				return r;
+			}));
+		}
+
+		CSVFormatException first = null;
+		for(ForkJoinTask<Range> t:all){
+			Range r = t.join();
+			if(first == null){
+				first = r.error;
+			}
+		}
+		nextRange = rangeCount;
+		if(first != null){
+			throw first;
+		}
+	}
+
+	@Override
+	public void close(){
+		for(ForkJoinTask<Range> t:tasks){
+			if(t != null){
+				t.cancel(false);
+			}
+		}
+		try{
+			file.close();
+		}catch(IOException e){
+			throw new UncheckedIOException(e);
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package RFC4180;
+
+// Point-in-time copy of a reader's instrumentation counters, see CSVReader.getStats()
+public final class CSVParseStats{
+	private final long charsConsumed;
+	private final long recordCount;
+	private final long fieldCount;
+	private final long refillCount;
+	private final long readBlockedNanos;
+	private final int maxRecordSize;
+	private final int fieldIndexGrowths;
+	private final long skippedCount;
+	private final long quarantinedCount;
+
+	CSVParseStats(CSVReaderMXBean source){
+		this.charsConsumed = source.getCharsConsumed();
+		this.recordCount = source.getRecordCount();
+		this.fieldCount = source.getFieldCount();
+		this.refillCount = source.getRefillCount();
+		this.readBlockedNanos = source.getReadBlockedNanos();
+		this.maxRecordSize = source.getMaxRecordSize();
+		this.fieldIndexGrowths = source.getFieldIndexGrowths();
+		this.skippedCount = source.getSkippedCount();
+		this.quarantinedCount = source.getQuarantinedCount();
+	}
+
+	// getters
+	public long getCharsConsumed(){
+		return charsConsumed;
+	}
+
+	public long getRecordCount(){
+		return recordCount;
+	}
+
+	public long getFieldCount(){
+		return fieldCount;
+	}
+
+	public long getRefillCount(){
+		return refillCount;
+	}
+
+	public long getReadBlockedNanos(){
+		return readBlockedNanos;
+	}
+
+	public int getMaxRecordSize(){
+		return maxRecordSize;
+	}
+
+	public int getFieldIndexGrowths(){
+		return fieldIndexGrowths;
+	}
+
+	public long getSkippedCount(){
+		return skippedCount;
+	}
+
+	public long getQuarantinedCount(){
+		return quarantinedCount;
+	}
+
+	@Override
+	public String toString(){
+		return "chars=" + charsConsumed + ", records=" + recordCount + ", fields=" + fieldCount +
+			", refills=" + refillCount + ", readBlockedMs=" + readBlockedNanos / 1_000_000 +
+			", maxRecordSize=" + maxRecordSize + ", fieldIndexGrowths=" + fieldIndexGrowths +
+			", skipped=" + skippedCount + ", quarantined=" + quarantinedCount;
+	}
+}
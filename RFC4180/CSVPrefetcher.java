@@ -0,0 +1,142 @@
+package RFC4180;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import java.io.InterruptedIOException;
+import java.io.IOException;
+import java.io.Reader;
+
+// Reads ahead of a CSVReader on its own thread, so the parser does not stall on every refill.
+// A fixed ring of buffers goes round between the two threads: the prefetch thread takes a free
+// one, fills it and queues it, the parser swaps it in for the buffer it has just finished with.
+final class CSVPrefetcher{
+	static final class Chunk{
+		final char[] buffer; // null at end of input or on error
+		final int length;
+		final Throwable error; // whatever stopped the prefetch thread, checked or not
+
+		Chunk(char[] buffer, int length, Throwable error){
+			this.buffer = buffer;
+			this.length = length;
+			this.error = error;
+		}
+	}
+
+	private static final AtomicLong THREADS = new AtomicLong();
+	private static final Chunk END = new Chunk(null, -1, null);
+	static final long CLOSE_WAIT_MILLIS = 100; // how long close() waits for the prefetch thread to stop
+
+	private final Reader source;
+	private final BlockingQueue<char[]> free;
+	private final BlockingQueue<Chunk> filled;
+	private final Thread thread;
+	private volatile boolean closed;
+	private Chunk last; // END or an error, handed out again on every later take()
+
+	// The caller's buffer joins the ring on the first release(), hence the spare slot
+	CSVPrefetcher(Reader source, int bufferSize, int ringSize, ThreadFactory threadFactory){
+		this.source = source;
+		this.free = new ArrayBlockingQueue<>(ringSize + 1);
+		this.filled = new ArrayBlockingQueue<>(ringSize + 2);
+		for(int i = 0; i<ringSize; i++){
+			free.add(new char[bufferSize]);
+		}
+		this.thread = (threadFactory != null)? threadFactory.newThread(this::run) : defaultThread(this::run);
+		thread.start();
+	}
+
+	private static Thread defaultThread(Runnable task){
+		Thread t = new Thread(task, "csv-prefetch-" + THREADS.incrementAndGet());
+		t.setDaemon(true);
+		return t;
+	}
+
+	private void run(){
+		try{
+			while(true){
+				char[] buffer = free.take();
+				int n = source.read(buffer);
+				if(n == -1){
+					filled.put(END);
+					return;
+				}
+				filled.put(new Chunk(buffer, n, null));
+			}
+		}catch(InterruptedException e){
+			// closed
+		}catch(Throwable e){
+			// anything else ends the input too, or the parser would wait in take() forever
+			filled.offer(new Chunk(null, -1, e));
+		}finally{
+			if(closed){
+				closeQuietly(); // close() may have stopped waiting while a read was blocked
+			}
+		}
+	}
+
+	private void closeQuietly(){
+		try{
+			source.close();
+		}catch(IOException e){
+			// nobody is left to report it to
+		}
+	}
+
+	// Next filled buffer, blocking until the prefetch thread has one
+	Chunk take() throws IOException{
+		if(last != null){
+			return throwOrEnd(last);
+		}
+		Chunk chunk;
+		try{
+			chunk = filled.take();
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for prefetched input");
+		}
+		if(chunk.buffer == null){
+			last = chunk;
+			return throwOrEnd(chunk);
+		}
+		return chunk;
+	}
+
+	// The prefetch thread's failure is rethrown on the parser's thread as it was
+	private static Chunk throwOrEnd(Chunk chunk) throws IOException{
+		Throwable e = chunk.error;
+		if(e instanceof IOException){
+			throw (IOException)e;
+		}
+		if(e instanceof RuntimeException){
+			throw (RuntimeException)e;
+		}
+		if(e instanceof Error){
+			throw (Error)e;
+		}
+		return chunk;
+	}
+
+	// A buffer the parser is done with, it can be filled again
+	void release(char[] buffer){
+		free.offer(buffer);
+	}
+
+	// An interrupt wakes the prefetch thread from the ring, but not from a read blocked on a pipe or
+	// socket, and closing the source would block too, on the lock that read holds. So close() only
+	// waits a little: a thread still reading after that closes the source itself once its read returns.
+	void close() throws IOException{
+		closed = true;
+		thread.interrupt();
+		try{
+			thread.join(CLOSE_WAIT_MILLIS);
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+		if(!thread.isAlive()){
+			source.close();
+		}
+	}
+}
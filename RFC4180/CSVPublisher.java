@@ -0,0 +1,194 @@
+package RFC4180;
+
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import java.io.IOException;
+import java.io.Reader;
+
+// Flow.Publisher over one CSVReader, for a single subscriber. Records are parsed only against demand:
+// request(n) leads to at most n next() calls, made on the given executor, never on the subscriber's thread.
+// Signals go out in runs of up to BATCH onNext calls per executor task, with demand settled once per run.
+// A CSVFormatException (or any other failure, building the reader included) ends the stream through
+// onError; cancel() stops it, and the reader and its Reader are closed on every way out.
+// With reuseRecords, a record is only valid until its onNext returns; snapshot() it to keep it.
+public final class CSVPublisher implements Flow.Publisher<CSVRecord>{
+	static final int BATCH = 256; // onNext calls per executor task
+
+	private final CSVReader.Builder config;
+	private final Reader input;
+	private final Executor executor;
+	private final AtomicBoolean subscribed = new AtomicBoolean();
+
+	CSVPublisher(CSVReader.Builder config, Reader input, Executor executor){
+		this.config = config;
+		this.input = Objects.requireNonNull(input);
+		this.executor = Objects.requireNonNull(executor);
+	}
+
+	@Override
+	public void subscribe(Flow.Subscriber<? super CSVRecord> subscriber){
+		Objects.requireNonNull(subscriber);
+		if(!subscribed.compareAndSet(false, true)){
+			subscriber.onSubscribe(new Flow.Subscription(){
+				public void request(long n){}
+				public void cancel(){}
+			});
+			subscriber.onError(new IllegalStateException("A CSVPublisher takes a single subscriber"));
+			return;
+		}
+		new RecordSubscription(subscriber).start();
+	}
+
+	private final class RecordSubscription implements Flow.Subscription{
+		private final Flow.Subscriber<? super CSVRecord> subscriber;
+		private final AtomicLong demand = new AtomicLong();
+		private final AtomicInteger wip = new AtomicInteger(); // drain requests, only the one that raised it from 0 runs
+		private volatile boolean cancelled;
+		private volatile Throwable badRequest;
+
+		// Only touched by the running drain
+		private boolean started;
+		private boolean done;
+		private CSVReader reader;
+
+		RecordSubscription(Flow.Subscriber<? super CSVRecord> subscriber){
+			this.subscriber = subscriber;
+		}
+
+		// onSubscribe is signalled from the executor too, so it cannot overlap an onNext
+		void start(){
+			schedule();
+		}
+
+		@Override
+		public void request(long n){
+			if(n <= 0){
+				badRequest = new IllegalArgumentException("Non-positive request " + n);
+			}else{
+				long current, next;
+				do{
+					current = demand.get();
+					next = (current + n < 0)? Long.MAX_VALUE : current + n; // unbounded once it overflows
+				}while(!demand.compareAndSet(current, next));
+			}
+			schedule();
+		}
+
+		@Override
+		public void cancel(){
+			cancelled = true;
+			schedule(); // the drain closes the reader, which is never used from two threads
+		}
+
+		private void schedule(){
+			if(wip.getAndIncrement() == 0){
+				execute();
+			}
+		}
+
+		private void execute(){
+			try{
+				executor.execute(this::drain);
+			}catch(RuntimeException e){
+				// rejected, nothing will run the drain
+				if(!started){
+					started = true;
+					subscriber.onSubscribe(this);
+				}
+				done = true;
+				close();
+				subscriber.onError(e);
+			}
+		}
+
+		private void drain(){
+			int missed = 1;
+			while(true){
+				if(!started){
+					started = true;
+					subscriber.onSubscribe(this);
+				}
+				if(!done){
+					if(cancelled){
+						done = true;
+						close();
+					}else if(badRequest != null){
+						fail(badRequest);
+					}else if(emit()){
+						execute(); // more demand than one run, the rest goes in a fresh task
+						return;
+					}
+				}
+				missed = wip.addAndGet(-missed);
+				if(missed == 0){
+					return;
+				}
+			}
+		}
+
+		// Up to BATCH records against demand; true when a full run went out and demand is left
+		private boolean emit(){
+			long requested = demand.get();
+			long emitted = 0;
+			boolean ended = false;
+			try{
+				if(reader == null){
+					reader = config.build(input);
+				}
+				while(emitted != requested && emitted < BATCH && !cancelled){
+					CSVRecord record;
+					try{
+						record = reader.hasNext()? reader.next() : null;
+					}catch(NoSuchElementException e){
+						record = null; // blank last line
+					}
+					if(record == null){
+						ended = true;
+						break;
+					}
+					subscriber.onNext(record);
+					emitted++;
+				}
+				ended |= !reader.hasNext(); // known without waiting for more demand
+			}catch(RuntimeException e){
+				fail(e);
+				return false;
+			}
+
+			if(requested != Long.MAX_VALUE){
+				requested = demand.addAndGet(-emitted);
+			}
+			if(ended && !cancelled){
+				done = true;
+				close();
+				subscriber.onComplete();
+				return false;
+			}
+			return emitted == BATCH && requested > 0 && !cancelled;
+		}
+
+		private void fail(Throwable error){
+			done = true;
+			close();
+			subscriber.onError(error);
+		}
+
+		private void close(){
+			try{
+				if(reader != null){
+					reader.close();
+				}else{
+					input.close();
+				}
+			}catch(IOException | RuntimeException e){
+				// closing is best effort once the stream has ended
+			}
+		}
+	}
+}
@@ -1,42 +1,102 @@
 package RFC4180;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
 
 import java.io.Reader;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 
-public final class CSVReader implements Iterator<CSVRecord>, AutoCloseable{
-	private interface EndingHandler{
-		void handle();
-	}
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Cleaner;
+import java.lang.ref.WeakReference;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+public final class CSVReader implements Iterator<CSVRecord>, AutoCloseable{
 	// For FSM Trace
-	private static final String[] states = {"FIELD_START", "UNQUOTED", "QUOTED", "QUOTED_END", "DEAD"};
-	private static final String[] classes = {"OTHER", "QUOTE", "CR", "LF", "EOF", "DELIMITER"};
-	private static final String[] actions = {"EMIT_FIELD", "EMIT_RECORD", "NO_OP", "THROW_ERROR", "APPEND"};
+	static final String[] states = {"FIELD_START", "UNQUOTED", "QUOTED", "QUOTED_END", "DEAD"};
+	static final String[] classes = {"OTHER", "QUOTE", "CR", "LF", "EOF", "DELIMITER"};
+	static final String[] actions = {"EMIT_FIELD", "EMIT_RECORD", "NO_OP", "THROW_ERROR", "APPEND"};
 
 	private final Reader reader;	
 
 	private StringBuilder recordBuffer;
-	private int maxRecSizeSeen;
+	private int maxRecSizeSeen; // largest record of the previous and current window, recordBuffer is kept this large
+	private int windowMaxRecSize; // largest record of the current window
+	private int windowRecords; // records of the current window, which restarts every SHRINK_WINDOW
 	private int[] fieldLastIndices;
 	private int size;
+	private int recordSize; // fields per returned record, less than the column count when projecting
 	private boolean firstRecRead;
 	private int expectedColumnCount;
 	private int state;
 	private boolean recReady;
+	private boolean clearPending; // recordBuffer still backs the last returned record
 
 	// Exception Handling
 	private int recordNumber;
 	private int actualColumnCount;
-	private StringBuilder recHistory;
+	private int recStart; // where the current record begins in ioBuff
+	private StringBuilder spill; // its earlier part, saved when ioBuff was refilled
+	private boolean recordOverflow; // the record outgrew maxRecordChars across a refill, spill only holds its start
+	private boolean rawCut; // a streamed field went across a refill, spill only holds the record's start
+	private long cutChars; // chars of the record kept neither in spill nor in ioBuff
+
+	// Size limits, Integer.MAX_VALUE when not set
+	private final int maxRecordChars;
+	private final int maxFieldChars;
+	private final int maxColumns;
+	private int fieldChars; // of the current field, kept or not
+
+	// Record index, and where a reader opened at an indexed record picked up
+	private final CSVIndex index; // null unless Builder.recordIndex() is set
+	private final long charBase; // chars of the input before this reader's first one
+	private final int resumeColumnCount; // column count the index expects, 0 when not resumed or not known
 
 	// Buffering and Lookahead
-	private final char[] ioBuff;
+	private char[] ioBuff;
+	private final int maxBufferSize; // adaptive reads grow ioBuff up to this
+	private int fullRefills; // consecutive refills that filled ioBuff completely
+	private long refillCount;
+	private final CSVBufferPool bufferPool;
+	private final CSVPrefetcher prefetcher; // null when reads are made inline
+
+	// Instrumentation, the per-record counters and read timings are only kept when enabled
+	private final boolean instrumented;
+	private long charsRead;
+	private long readBlockedNanos;
+	private long recordCount;
+	private long fieldCount;
+	private int maxRecordSize;
+	private int fieldIndexGrowths;
+	private Cleaner.Cleanable mxBeanRegistration; // unregisters the MXBean, on close() or once this reader is collected
+	private static final AtomicLong INSTANCES = new AtomicLong();
+
+	// JFR, see CSVEvents
+	private CSVEvents.ParseChunk chunkEvent;
+	private int chunkStartRecord;
+	private final int oversizeThreshold;
 	private int ioPos;
 	private int limit;
 	private int nextChar;	
@@ -48,25 +108,74 @@ public final class CSVReader implements Iterator<CSVRecord>, AutoCloseable{
 
 	public enum Mode{UNIX, WINDOWS, LENIENT};
 
+	// What next() does with a malformed record: throw it, drop it, or drop it and hand it to a QuarantineSink
+	public enum ErrorPolicy{FAIL, SKIP, QUARANTINE};
+
+	public interface QuarantineSink{
+		// rawRecord is the bad line exactly as in the input, without its line ending
+		void quarantine(CSVFormatException error, String rawRecord);
+	}
+
+	// Takes the fields of streamed columns while they are parsed; recordNumber is as CSVRecord has it
+	// and column is the 0-based input column
+	public interface FieldSink{
+		// The next part of the field, chars are only valid during the call
+		void chunk(int recordNumber, int column, char[] chars, int offset, int length);
+		// The field is complete, its record follows from next() unless a later error drops it
+		void end(int recordNumber, int column);
+		// The record failed or was dropped, whatever was pushed for it is void
+		default void discard(int recordNumber){}
+	}
+
 	// Configurations
 	private final Mode mode;
 	private final char[] delimiters;
 	private long low = 0, high = 0; //1-64, 65-128 ASCII bitset storage for delimiters
 	private final boolean enableFSMTrace;
 	private final boolean trimSpaces;
+	private final boolean reuseRecords;
+	private boolean[] selected; // projected columns, null when all are kept (and, when selected by name, until the header is read)
+	private boolean keepField; // current field is one of them
+	private boolean droppedData; // chars of unselected or streamed columns were seen in this record
+	private boolean[] streamed; // columns pushed to fieldSink, null when none and while the header is read
+	private final FieldSink fieldSink;
+	private boolean streamField; // current field is one of them
+	private int streamColumn;
+	private final char[] streamBuff; // chars appended one by one, pushed as one chunk
+	private int streamPos;
+	private long streamedChars; // input chars of the current record taken by streamed fields
+	private boolean streamedRecord; // fieldSink has seen part of the current record
+	private final CSVRecord view; // the single record handed out when reuseRecords is on
+	private final CSVHeader header; // names from the first record, null when withHeader is off
+	private final CSVDictionary[] dictionaries; // by position in the record, null when no column has one
+	private CSVColumnBatch batch; // reused by every nextBatch() call
+	private boolean batching; // records go into batch instead of being returned
+	private CSVFormatException batchError; // hit after some rows of a batch, thrown by the following nextBatch()
+	private final ErrorPolicy errorPolicy;
+	private final QuarantineSink quarantineSink;
+	private Path file; // where the input comes from when known, given to its CSVFormatExceptions
+	private long skippedCount;
+	private long quarantinedCount;
 
-	private static final int DELIMITER_LIMIT = 5;
-	private static final int IO_LIMIT = 8192; // 8192 bytes
-	private static final int FIELD_START = 0, UNQUOTED = 1,  QUOTED = 2, QUOTED_END = 3, DEAD = 4;
-	private static final int OTHER = 0, QUOTE = 1, CR = 2, LF = 3, EOF = 4, DELIMITER = 5;
-	private static final int EMIT_FIELD = 0, EMIT_RECORD = 1, NO_OP = 2, THROW_ERROR = 3, APPEND = 4;
+	static final int DELIMITER_LIMIT = 5;
+	static final int IO_LIMIT = 8192; // default buffer size, chars for CSVReader and bytes for CSVByteReader
+	static final int ADAPT_AFTER = 4; // full refills in a row before an adaptive buffer doubles
+	static final int OVERSIZE_THRESHOLD = 1 << 20; // chars, default for the CSVRecordOversize event
+	static final int SHRINK_WINDOW = 1024; // records per tumbling window, maxRecSizeSeen spans the last SHRINK_WINDOW to 2*SHRINK_WINDOW-1
+	static final int SHRINK_FLOOR = 1 << 16; // chars, buffers up to this size are never given up
+	static final int LIMIT_EXCERPT = 1024; // chars of an oversized record kept in its CSVLimitException
+	static final int FIELD_START = 0, UNQUOTED = 1,  QUOTED = 2, QUOTED_END = 3, DEAD = 4;
+	static final int OTHER = 0, QUOTE = 1, CR = 2, LF = 3, EOF = 4, DELIMITER = 5;
+	static final int EMIT_FIELD = 0, EMIT_RECORD = 1, NO_OP = 2, THROW_ERROR = 3, APPEND = 4;
 
 	private final int[] inputClassTable;
-
-	private final EndingHandler endingHandler;
+	private final boolean[] unquotedStops; // chars that end a bulk run inside an unquoted field
+	private final boolean scanRuns;
+	private final boolean plainEngine; // no trimming and no trace, parsed by parsePlain()
 
 	// Transition Function as Lookup Table
-	private static final int [][] transition = {
+	// (shared with CSVByteReader, which runs the same FSM over raw bytes)
+	static final int [][] transition = {
 		// FIELD_START
 		// OTHER,   QUOTE,       CR,         LF,           EOF,          DELIMITER
 		{UNQUOTED,  QUOTED,      DEAD,     FIELD_START,    FIELD_START,  FIELD_START},
@@ -85,7 +194,7 @@ public final class CSVReader implements Iterator<CSVRecord>, AutoCloseable{
 	};
 
 	// Action Function as Lookup Table
-	private static final int [][] action = {
+	static final int [][] action = {
 		// FIELD_START
 		// OTHER,      QUOTE,          CR,           LF,           EOF,       DELIMITER
 		{APPEND,       NO_OP,        THROW_ERROR,  EMIT_RECORD,  EMIT_FIELD,  EMIT_FIELD},
@@ -103,6 +212,18 @@ public final class CSVReader implements Iterator<CSVRecord>, AutoCloseable{
 		{THROW_ERROR,  THROW_ERROR,  THROW_ERROR,  THROW_ERROR,  THROW_ERROR, THROW_ERROR}
 	};
 
+	// Both tables packed into one, (next state << STEP_SHIFT) | action at [state*CLASSES + class],
+	// so the hot loops make one lookup per char
+	static final int CLASSES = 6, STEP_SHIFT = 3, ACTION_MASK = 7;
+	static final int[] step = new int[transition.length * CLASSES];
+	static{
+		for(int s = 0; s<transition.length; s++){
+			for(int c = 0; c<CLASSES; c++){
+				step[s*CLASSES + c] = (transition[s][c] << STEP_SHIFT) | action[s][c];
+			}
+		}
+	}
+
 	public static class Builder{
 		// -----------------------------------------------------
 		// Default configurable values
@@ -115,6 +236,26 @@ public final class CSVReader implements Iterator<CSVRecord>, AutoCloseable{
 
 		private boolean trimSpaces = false;
 		private boolean enableFSMTrace = false;
+		private boolean reuseRecords = false;
+		private boolean withHeader = false;
+		private boolean[] selected = null; // all columns
+		private String[] selectedNames = null; // resolved against the header at build time
+		private int[] dictionaries = null; // capacity by column, 0 for none
+		private int indexInterval = 0; // no record index
+		private ErrorPolicy errorPolicy = ErrorPolicy.FAIL;
+		private QuarantineSink quarantineSink = null;
+		private boolean[] streamed = null; // no streamed columns
+		private FieldSink fieldSink = null;
+		private int bufferSize = IO_LIMIT;
+		private int maxBufferSize = 0; // not adaptive
+		private CSVBufferPool bufferPool = null;
+		private int prefetchBuffers = 0; // no prefetching
+		private ThreadFactory prefetchThreads = null;
+		private boolean instrumented = false;
+		private int oversizeThreshold = OVERSIZE_THRESHOLD;
+		private int maxRecordChars = Integer.MAX_VALUE;
+		private int maxFieldChars = Integer.MAX_VALUE;
+		private int maxColumns = Integer.MAX_VALUE;
 		// -----------------------------------------------------
 		
 		public Builder enableTrimming(boolean trimSpaces){
@@ -136,9 +277,374 @@ public final class CSVReader implements Iterator<CSVRecord>, AutoCloseable{
 			this.enableFSMTrace = enableFSMTrace;
 			return this;
 		}
+		// next() keeps returning the same CSVRecord, a view over the reader's buffers that
+		// stays valid until the following next() call; use CSVRecord.snapshot() to keep one
+		public Builder reuseRecords(boolean reuseRecords){
+			this.reuseRecords = reuseRecords;
+			return this;
+		}
+		// The first record holds column names: build() reads it, next() starts at the second record
+		// and fields can be read by name. With selectColumns() only the selected names are kept.
+		public Builder withHeader(boolean withHeader){
+			this.withHeader = withHeader;
+			return this;
+		}
+		// Only these 0-based columns are buffered and indexed, in file order; every column is still validated
+		public Builder selectColumns(int...columns){
+			int max = -1;
+			for(int c:columns){
+				if(c < 0){
+					throw new IllegalArgumentException("Column index cannot be negative");
+				}
+				max = (c > max)? c : max;
+			}
+			this.selected = new boolean[max+1];
+			for(int c:columns){
+				selected[c] = true;
+			}
+			this.selectedNames = null;
+			return this;
+		}
+		// As above by column name, which needs withHeader(true): the names are looked up in the header
+		// when the reader is built, and one the header does not have is an IllegalArgumentException
+		public Builder selectColumns(String...names){
+			for(String name:names){
+				if(name == null){
+					throw new IllegalArgumentException("Column name cannot be null");
+				}
+			}
+			this.selectedNames = names.clone();
+			this.selected = null;
+			return this;
+		}
+		// Fields of these 0-based columns are never buffered: they go to sink in chunks straight from the
+		// input buffer as they are parsed, and read as empty fields in records. So a huge cell costs no
+		// heap, it is exempt from maxFieldChars and does not count towards maxRecordChars.
+		public Builder streamColumns(FieldSink sink, int...columns){
+			if(sink == null){
+				throw new IllegalArgumentException("Streamed columns need a FieldSink");
+			}
+			int max = -1;
+			for(int c:columns){
+				if(c < 0){
+					throw new IllegalArgumentException("Column index cannot be negative");
+				}
+				max = (c > max)? c : max;
+			}
+			this.streamed = new boolean[max+1];
+			for(int c:columns){
+				streamed[c] = true;
+			}
+			this.fieldSink = sink;
+			return this;
+		}
+		// Fields of this 0-based column resolve against a CSVDictionary holding up to capacity values,
+		// so getField() hands out one shared String per distinct value and getCode() a small int
+		public Builder dictionary(int column, int capacity){
+			if(column < 0){
+				throw new IllegalArgumentException("Column index cannot be negative");
+			}
+			if(capacity <= 0){
+				throw new IllegalArgumentException("Dictionary capacity must be positive");
+			}
+			if(dictionaries == null || column >= dictionaries.length){
+				dictionaries = (dictionaries == null)? new int[column+1] : Arrays.copyOf(dictionaries, column+1);
+			}
+			dictionaries[column] = capacity;
+			return this;
+		}
+		// Every interval-th record start is noted in a CSVIndex, see getIndex()
+		public Builder recordIndex(int interval){
+			if(interval <= 0){
+				throw new IllegalArgumentException("Index interval must be positive");
+			}
+			this.indexInterval = interval;
+			return this;
+		}
+		// Under SKIP and QUARANTINE a malformed record is dropped up to the end of its line and parsing
+		// carries on with the next one, which keeps its record number
+		public Builder onError(ErrorPolicy errorPolicy){
+			return onError(errorPolicy, null);
+		}
+		public Builder onError(ErrorPolicy errorPolicy, QuarantineSink quarantineSink){
+			if(errorPolicy == ErrorPolicy.QUARANTINE && quarantineSink == null){
+				throw new IllegalArgumentException("QUARANTINE needs a QuarantineSink");
+			}
+			this.errorPolicy = errorPolicy;
+			this.quarantineSink = quarantineSink;
+			return this;
+		}
+		// Chars asked for per read(), bytes for streams and channels of a CSVByteReader
+		public Builder bufferSize(int bufferSize){
+			if(bufferSize <= 0){
+				throw new IllegalArgumentException("Buffer size must be positive");
+			}
+			this.bufferSize = bufferSize;
+			return this;
+		}
+		// The buffer doubles, up to maxBufferSize, whenever several refills in a row come back completely full
+		public Builder adaptiveBufferSize(int maxBufferSize){
+			if(maxBufferSize <= 0){
+				throw new IllegalArgumentException("Buffer size must be positive");
+			}
+			this.maxBufferSize = maxBufferSize;
+			return this;
+		}
+		// Buffers are borrowed from the pool and given back on close(), after which
+		// a reusable record view must not be read any more
+		public Builder bufferPool(CSVBufferPool bufferPool){
+			this.bufferPool = bufferPool;
+			return this;
+		}
+		// A background thread reads up to ringSize buffers ahead while the parser works on the current one,
+		// it is stopped by close(). The factory can supply any kind of thread, a daemon one is made by default.
+		public Builder prefetch(int ringSize){
+			return prefetch(ringSize, null);
+		}
+		public Builder prefetch(int ringSize, ThreadFactory threadFactory){
+			if(ringSize <= 0){
+				throw new IllegalArgumentException("Prefetch ring size must be positive");
+			}
+			this.prefetchBuffers = ringSize;
+			this.prefetchThreads = threadFactory;
+			return this;
+		}
+		// Counters and read timings, available from getStats() and as a CSVReaderMXBean
+		public Builder enableInstrumentation(boolean instrumented){
+			this.instrumented = instrumented;
+			return this;
+		}
+		// Records longer than this many chars fire a RFC4180.CSVRecordOversize JFR event
+		public Builder oversizeThreshold(int oversizeThreshold){
+			if(oversizeThreshold <= 0){
+				throw new IllegalArgumentException("Oversize threshold must be positive");
+			}
+			this.oversizeThreshold = oversizeThreshold;
+			return this;
+		}
+		// Limits that keep malformed input, like an unterminated quote or a missing line ending, from pulling
+		// the rest of the input into one record. A record breaking one is a CSVLimitException, dropped like any
+		// other malformed record under SKIP or QUARANTINE.
+		// Input chars a record may span, line ending included; no more than this is buffered for it
+		public Builder maxRecordChars(int maxRecordChars){
+			if(maxRecordChars <= 0){
+				throw new IllegalArgumentException("Record char limit must be positive");
+			}
+			this.maxRecordChars = maxRecordChars;
+			return this;
+		}
+		// Chars of one field's value, unselected columns included
+		public Builder maxFieldChars(int maxFieldChars){
+			if(maxFieldChars <= 0){
+				throw new IllegalArgumentException("Field char limit must be positive");
+			}
+			this.maxFieldChars = maxFieldChars;
+			return this;
+		}
+		// Columns of a record, the first one included
+		public Builder maxColumns(int maxColumns){
+			if(maxColumns <= 0){
+				throw new IllegalArgumentException("Column limit must be positive");
+			}
+			this.maxColumns = maxColumns;
+			return this;
+		}
 	
 		public CSVReader build(Reader reader){
-			return new CSVReader(reader, mode, delimiters, trimSpaces, enableFSMTrace);
+			if(prefetchBuffers != 0 && maxBufferSize != 0){
+				throw new IllegalStateException("Prefetched buffers have a fixed size and cannot be adaptive");
+			}
+			return new CSVReader(reader, this);
+		}
+
+		boolean hasHeader(){
+			return withHeader;
+		}
+
+		// A reader starting at record (1-based) of the input the index was taken from: it skips to the nearest
+		// indexed record before it and parses its way from there, numbering records and checking their column
+		// count as a reader from the start would. The header of a Reader cannot be gone back for, see build(Path, ...).
+		public CSVReader build(Reader reader, CSVIndex index, long record){
+			int entry = index.floor(record);
+			if(withHeader && index.getRecordNumber(entry) > 1){
+				throw new IllegalStateException("A header is only read for a resumed file opened by Path");
+			}
+			skipTo(reader, index.getCharOffset(entry));
+			return resume(reader, index, entry, record, null, null);
+		}
+
+		// As above for a UTF-8 file, seeking straight to the byte offset when the index has one.
+		// With a header, it is read from the start of the file first.
+		public CSVReader build(Path file, CSVIndex index, long record){
+			int entry = index.floor(record);
+			CSVHeader header = null;
+			if(withHeader && index.getRecordNumber(entry) > 1){
+				Builder first = new Builder().setMode(mode).setDelimiters(delimiters).enableTrimming(trimSpaces).withHeader(true);
+				first.selected = selected; // by name, the header is passed whole and resolved by the resumed reader
+				try(CSVReader r = first.build(Files.newBufferedReader(file))){
+					header = r.getHeader();
+				}catch(IOException e){
+					throw new UncheckedIOException(e);
+				}
+			}
+			Reader reader;
+			try{
+				long byteOffset = index.getByteOffset(entry);
+				if(byteOffset < 0){
+					reader = Files.newBufferedReader(file);
+					skipTo(reader, index.getCharOffset(entry));
+				}else{
+					FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+					channel.position(byteOffset);
+					reader = Channels.newReader(channel, StandardCharsets.UTF_8);
+				}
+			}catch(IOException e){
+				throw new UncheckedIOException(e);
+			}
+			return resume(reader, index, entry, record, header, file);
+		}
+
+		private static void skipTo(Reader reader, long charOffset){
+			try{
+				for(long skip = charOffset; skip > 0; ){
+					long skipped = reader.skip(skip);
+					if(skipped <= 0){
+						throw new IOException("Input ends before the indexed offset " + charOffset);
+					}
+					skip -= skipped;
+				}
+			}catch(IOException e){
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		private CSVReader resume(Reader reader, CSVIndex index, int entry, long record, CSVHeader header, Path file){
+			if(prefetchBuffers != 0 && maxBufferSize != 0){
+				throw new IllegalStateException("Prefetched buffers have a fixed size and cannot be adaptive");
+			}
+			CSVReader r = new CSVReader(reader, this, index, entry, header);
+			r.setFile(file);
+			try{
+				while(r.recordNumber+1 < record && r.hasNext()){
+					r.next();
+				}
+			}catch(NoSuchElementException e){
+				// blank last line
+			}
+			return r;
+		}
+
+		// Many UTF-8 files read at once by readers from this Builder, see CSVIngestor.
+		// A QuarantineSink is called from the worker threads.
+		public CSVIngestor buildIngestor(List<Path> files){
+			return buildIngestor(files, null, Runtime.getRuntime().availableProcessors(), CSVIngestor.Ordering.INTERLEAVED);
+		}
+		public CSVIngestor buildIngestor(List<Path> files, ThreadFactory threadFactory, int maxOpenFiles, CSVIngestor.Ordering ordering){
+			return new CSVIngestor(this, files, threadFactory, maxOpenFiles, ordering);
+		}
+		// Every regular file in the directory, by name
+		public CSVIngestor buildIngestor(Path directory){
+			try(Stream<Path> entries = Files.list(directory)){
+				return buildIngestor(entries.filter(Files::isRegularFile).sorted().toList());
+			}catch(IOException e){
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		// A Flow.Publisher of the records of reader, parsed on executor as the subscriber asks for them
+		public CSVPublisher buildPublisher(Reader reader, Executor executor){
+			return new CSVPublisher(this, reader, executor);
+		}
+
+		// A writer whose output readers from this Builder read back: same mode, delimiters and trimming
+		public CSVWriter buildWriter(Writer writer){
+			return new CSVWriter(writer, null, bufferSize, mode, delimiters, trimSpaces);
+		}
+		// UTF-8 encoded while escaping, into a byte buffer
+		public CSVWriter buildWriter(OutputStream out){
+			return new CSVWriter(null, out, bufferSize, mode, delimiters, trimSpaces);
+		}
+		public CSVWriter buildWriter(Path path){
+			try{
+				return buildWriter(Files.newOutputStream(path));
+			}catch(IOException e){
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		// Fast scan of a UTF-8 file noting every interval-th record start, see CSVIndex
+		public CSVIndex buildIndex(Path file, int interval){
+			return CSVIndex.scan(file, mode, delimiters, trimSpaces, interval);
+		}
+
+		// Options that only the char based CSVReader implements
+		private void checkByteReaderOptions(){
+			if(reuseRecords){
+				throw new IllegalStateException("Reusable records are only supported by CSVReader");
+			}
+			if(selected != null || selectedNames != null){
+				throw new IllegalStateException("Column projection is only supported by CSVReader");
+			}
+			if(withHeader){
+				throw new IllegalStateException("Header records are only supported by CSVReader");
+			}
+			if(dictionaries != null){
+				throw new IllegalStateException("Dictionaries are only supported by CSVReader");
+			}
+			if(streamed != null){
+				throw new IllegalStateException("Streamed columns are only supported by CSVReader");
+			}
+			if(indexInterval != 0){
+				throw new IllegalStateException("Record indexes are only supported by CSVReader");
+			}
+			if(errorPolicy != ErrorPolicy.FAIL){
+				throw new IllegalStateException("Error policies are only supported by CSVReader");
+			}
+			if(maxBufferSize != 0 || bufferPool != null){
+				throw new IllegalStateException("Adaptive and pooled buffers are only supported by CSVReader");
+			}
+			if(prefetchBuffers != 0){
+				throw new IllegalStateException("Prefetching is only supported by CSVReader");
+			}
+			if(instrumented){
+				throw new IllegalStateException("Instrumentation is only supported by CSVReader");
+			}
+			if(maxRecordChars != Integer.MAX_VALUE || maxFieldChars != Integer.MAX_VALUE || maxColumns != Integer.MAX_VALUE){
+				throw new IllegalStateException("Size limits are only supported by CSVReader");
+			}
+		}
+
+		// UTF-8 input parsed as raw bytes, fields are decoded lazily by CSVRecord
+		public CSVByteReader build(InputStream in){
+			checkByteReaderOptions();
+			return new CSVByteReader(in, null, bufferSize, mode, delimiters, trimSpaces, enableFSMTrace);
+		}
+		public CSVByteReader build(ReadableByteChannel channel){
+			checkByteReaderOptions();
+			return new CSVByteReader(null, channel, bufferSize, mode, delimiters, trimSpaces, enableFSMTrace);
+		}
+
+		// Local UTF-8 file scanned straight from memory-mapped windows, no read() copies
+		public CSVByteReader build(Path path){
+			checkByteReaderOptions();
+			try{
+				FileChannel file = FileChannel.open(path, StandardOpenOption.READ);
+				return new CSVByteReader(file, 0, file.size(), mode, delimiters, trimSpaces, enableFSMTrace);
+			}catch(IOException e){
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		// Splits a local file into record aligned chunks parsed on a fork-join pool
+		public CSVParallelReader buildParallel(Path path){
+			return buildParallel(path, ForkJoinPool.commonPool(), CSVParallelReader.DEFAULT_CHUNK_SIZE);
+		}
+		public CSVParallelReader buildParallel(Path path, ForkJoinPool pool, int chunkSize){
+			checkByteReaderOptions();
+			if(enableFSMTrace){
+				throw new IllegalStateException("FSM trace is not available for parallel parsing");
+			}
+			return new CSVParallelReader(path, pool, chunkSize, mode, delimiters, trimSpaces);
 		}
 	}
 
@@ -146,20 +652,23 @@ public final class CSVReader implements Iterator<CSVRecord>, AutoCloseable{
 		return new CSVReader.Builder().build(reader);
 	}
 	
-	private CSVReader(Reader reader, Mode mode, char[] delimiters, boolean trimSpaces,  boolean enableFSMTrace){
+	private CSVReader(Reader reader, Builder config){
+		this(reader, config, null, 0, null);
+	}
+
+	// Resumed at the given entry of start when it is not null, header then comes from the file's start
+	private CSVReader(Reader reader, Builder config, CSVIndex start, int entry, CSVHeader header){
+		Mode mode = config.mode;
+		char[] delimiters = config.delimiters;
+		boolean trimSpaces = config.trimSpaces;
+
 		this.reader = reader;
 		this.mode = mode;
 		
-		// better to use switch because endingHandler is final but not intialised yet
 		switch(mode){
 			case WINDOWS:
-				endingHandler = this::windowsEnding;
-				break;
 			case LENIENT:
-				endingHandler = this::lenientEnding;
-				break;
 			case UNIX:
-				endingHandler = () -> {}; // nothing
 				break;
 			default:
 				throw new IllegalArgumentException("Invalid Reader Mode");
@@ -184,8 +693,31 @@ public final class CSVReader implements Iterator<CSVRecord>, AutoCloseable{
 			inputClassTable[d] = DELIMITER;
 		}
 
+		this.unquotedStops = new boolean[128];
+		for(int c = 0; c<128; c++){
+			unquotedStops[c] = inputClassTable[c] != OTHER || (trimSpaces && c == ' ');
+		}
+
 		this.trimSpaces = trimSpaces;
-		this.enableFSMTrace = enableFSMTrace;
+		this.enableFSMTrace = config.enableFSMTrace;
+		this.scanRuns = !enableFSMTrace; // trace has to see every character
+		this.plainEngine = !trimSpaces && !enableFSMTrace;
+		this.reuseRecords = config.reuseRecords;
+		this.view = reuseRecords? CSVRecord.view() : null;
+		if(config.selectedNames != null && !config.withHeader){
+			throw new IllegalStateException("Columns are only selected by name with a header");
+		}
+		this.selected = config.selected;
+		this.keepField = isSelected(0);
+		this.errorPolicy = config.errorPolicy;
+		this.quarantineSink = config.quarantineSink;
+		this.fieldSink = config.fieldSink;
+		this.streamBuff = (fieldSink != null)? new char[256] : null;
+		this.instrumented = config.instrumented;
+		this.oversizeThreshold = config.oversizeThreshold;
+		this.maxRecordChars = config.maxRecordChars;
+		this.maxFieldChars = config.maxFieldChars;
+		this.maxColumns = config.maxColumns;
 
 		this.countTrailSpaces = 0;
 		
@@ -193,23 +725,177 @@ public final class CSVReader implements Iterator<CSVRecord>, AutoCloseable{
 		this.finished = false;
 		this.firstRecRead = false;
 
-		this.ioBuff = new char[IO_LIMIT];
+		this.maxRecSizeSeen = 64;
+		this.bufferPool = config.bufferPool;
+		if(bufferPool != null){
+			this.ioBuff = bufferPool.borrowIOBuffer(config.bufferSize);
+			this.recordBuffer = bufferPool.borrowRecordBuffer(maxRecSizeSeen);
+		}else{
+			this.ioBuff = new char[config.bufferSize];
+			this.recordBuffer = new StringBuilder(maxRecSizeSeen);
+		}
+		this.maxBufferSize = Math.max(config.maxBufferSize, ioBuff.length);
+		this.prefetcher = (config.prefetchBuffers != 0)?
+			new CSVPrefetcher(reader, config.bufferSize, config.prefetchBuffers, config.prefetchThreads) : null;
+		this.spill = new StringBuilder();
+
 		this.ioPos = 0;
 		this.limit = 0;
 		this.buffered = -2; // empty
 		this.nextChar = bufferedRead();
 
-		this.maxRecSizeSeen = 64;
-		this.recordBuffer = new StringBuilder(maxRecSizeSeen);
-		this.recHistory = new StringBuilder(64);
 		this.fieldLastIndices = new int[128]; // 128 cols initially
 		this.size = 0;
 		this.expectedColumnCount = 0;
 		this.state = FIELD_START; // Starting state of FSM
+
+		if(start != null){
+			this.recordNumber = (int)(start.getRecordNumber(entry) - 1);
+			this.charBase = start.getCharOffset(entry);
+			this.resumeColumnCount = start.getColumnCount(entry);
+		}else{
+			this.charBase = 0;
+			this.resumeColumnCount = 0;
+		}
+		this.index = (config.indexInterval != 0)? new CSVIndex(config.indexInterval) : null;
+		indexRecordStart();
+
+		CSVHeader names = (header != null)? header : (config.withHeader && recordNumber == 0)? readHeader() : null;
+		this.header = (config.selectedNames != null && names != null)? selectByName(names, config.selectedNames) : names;
+		this.dictionaries = (config.dictionaries != null)? dictionaries(config.dictionaries) : null; // once selected is known
+		this.streamed = config.streamed; // the header's names are kept whole
+		this.streamField = isStreamed(0);
+		if(reuseRecords){
+			view.setColumns(this.header, dictionaries);
+		}
+
+		if(instrumented){
+			try{
+				ObjectName name = new ObjectName("RFC4180:type=CSVReader,id=" + INSTANCES.incrementAndGet());
+				ManagementFactory.getPlatformMBeanServer().registerMBean(new WeakMonitor(this), name);
+				mxBeanRegistration = Registrations.CLEANER.register(this, new Unregister(name));
+			}catch(JMException e){
+				throw new IllegalStateException("Could not register CSVReaderMXBean", e);
+			}
+		}
+	}
+
+	// Always parsed as under FAIL, a malformed header leaves nothing to name the columns by
+	private CSVHeader readHeader(){
+		CSVRecord first;
+		try{
+			first = parseNext();
+		}catch(NoSuchElementException e){
+			return null; // empty input
+		}
+		// straight from recordBuffer, the names are no values of a dictionary column
+		String[] names = new String[first.getRecordSize()];
+		for(int i = 0; i<names.length; i++){
+			names[i] = recordBuffer.substring((i == 0)? 0 : fieldLastIndices[i-1], fieldLastIndices[i]);
+		}
+		return new CSVHeader(names);
+	}
+
+	// Builder capacities by file column to dictionaries by position in the (possibly projected) record
+	// Turns selectColumns(String...) into the column projection, given the full header.
+	// The header record itself was parsed with every column, so its layout is cut down to the selection.
+	private CSVHeader selectByName(CSVHeader all, String[] names){
+		boolean[] byName = new boolean[all.getColumnCount()];
+		for(String name:names){
+			int column = all.indexOf(name);
+			if(column < 0){
+				throw new IllegalArgumentException("No column named " + name);
+			}
+			byName[column] = true;
+		}
+		this.selected = byName;
+
+		List<String> kept = new ArrayList<>();
+		for(int c = 0; c<byName.length; c++){
+			if(byName[c]) kept.add(all.getName(c));
+		}
+		if(firstRecRead){
+			recordSize = kept.size();
+			fieldLastIndices = new int[recordSize];
+		}
+		keepField = isSelected(0);
+		return new CSVHeader(kept.toArray(new String[0]));
+	}
+
+	private CSVDictionary[] dictionaries(int[] capacities){
+		CSVDictionary[] byPosition = new CSVDictionary[capacities.length];
+		for(int column = 0; column<capacities.length; column++){
+			if(capacities[column] == 0){
+				continue;
+			}
+			if(!isSelected(column)){
+				throw new IllegalArgumentException("Column " + column + " has a dictionary but is not selected");
+			}
+			byPosition[position(column)] = new CSVDictionary(capacities[column]);
+		}
+		return byPosition;
+	}
+
+	private int position(int column){
+		if(selected == null){
+			return column;
+		}
+		int position = 0;
+		for(int c = 0; c<column; c++){
+			if(isSelected(c)) position++;
+		}
+		return position;
+	}
+
+	// Dictionary of a 0-based file column, for its hit rate; null when it has none
+	public CSVDictionary getDictionary(int column){
+		if(dictionaries == null || column < 0 || !isSelected(column)){
+			return null;
+		}
+		int position = position(column);
+		return (position < dictionaries.length)? dictionaries[position] : null;
+	}
+
+	// null when the reader has no header, or the input was empty
+	public CSVHeader getHeader(){
+		return header;
+	}
+
+	// Notes the record nextChar opens, every interval-th one. ioBuff[0] is char charsRead - limit of this reader
+	// (limit is -1 at the end of input).
+	private void indexRecordStart(){
+		// record 1 is noted even for an empty input, so any index can open a reader
+		if(index != null && (nextChar != -1 || recordNumber == 0) && recordNumber % index.getInterval() == 0){
+			int columns = firstRecRead? expectedColumnCount : resumeColumnCount;
+			index.add(recordNumber+1, charBase + charsRead - Math.max(limit, 0) + recStart, -1, columns);
+		}
+	}
+
+	// Record starts seen so far (Builder.recordIndex()), with the record count once the input is exhausted
+	public CSVIndex getIndex(){
+		if(index != null && !hasNext()){
+			index.setRecordCount(recordNumber);
+		}
+		return index;
 	}
 
 	@Override
 	public void close(){
+		if(mxBeanRegistration != null){
+			mxBeanRegistration.clean();
+			mxBeanRegistration = null;
+		}
+		if(prefetcher != null){
+			try{
+				prefetcher.close(); // closes the reader too
+			}catch(IOException e){
+				throw new UncheckedIOException(e);
+			}finally{
+				releaseBuffers();
+			}
+			return;
+		}
+		releaseBuffers();
 	        if(reader != null){
 	                try{
 	                        reader.close();
@@ -219,6 +905,174 @@ public final class CSVReader implements Iterator<CSVRecord>, AutoCloseable{
 	        }
 	}	
 
+	private void releaseBuffers(){
+		if(bufferPool != null && ioBuff != null){
+			bufferPool.release(ioBuff, recordBuffer);
+			ioBuff = null;
+			recordBuffer = null;
+		}
+	}
+
+	void setFile(Path file){
+		this.file = file;
+	}
+
+	// Chars parsed so far, kept with or without instrumentation
+	long getCharsConsumed(){
+		// whatever is still unread in ioBuff, or held as lookahead, has not been consumed yet
+		return charsRead - Math.max(limit - ioPos, 0) - ((buffered >= 0)? 1 : 0);
+	}
+
+	// read() calls made on the underlying Reader so far, and the size they currently ask for
+	public long getRefillCount(){
+		return refillCount;
+	}
+
+	public int getBufferSize(){
+		return ioBuff.length;
+	}
+
+	public CSVParseStats getStats(){
+		if(!instrumented){
+			throw new IllegalStateException("Instrumentation is not enabled");
+		}
+		return new CSVParseStats(new Monitor());
+	}
+
+	// Reads the reader's own counters, for both JMX and getStats()
+	private final class Monitor implements CSVReaderMXBean{
+		@Override
+		public long getCharsConsumed(){
+			return CSVReader.this.getCharsConsumed();
+		}
+		@Override
+		public long getRecordCount(){
+			return recordCount;
+		}
+		@Override
+		public long getFieldCount(){
+			return fieldCount;
+		}
+		@Override
+		public long getRefillCount(){
+			return refillCount;
+		}
+		@Override
+		public long getReadBlockedNanos(){
+			return readBlockedNanos;
+		}
+		@Override
+		public int getMaxRecordSize(){
+			return maxRecordSize;
+		}
+		@Override
+		public int getFieldIndexGrowths(){
+			return fieldIndexGrowths;
+		}
+		@Override
+		public int getBufferSize(){
+			char[] buff = ioBuff;
+			return (buff == null)? 0 : buff.length;
+		}
+		@Override
+		public long getSkippedCount(){
+			return skippedCount;
+		}
+		@Override
+		public long getQuarantinedCount(){
+			return quarantinedCount;
+		}
+	}
+
+	// What the MBeanServer holds: only a weak reference, so a reader that is never closed can still be
+	// collected, reading as all zeros until its Cleaner has unregistered it
+	private static final class WeakMonitor implements CSVReaderMXBean{
+		private final WeakReference<CSVReader> reader;
+
+		WeakMonitor(CSVReader reader){
+			this.reader = new WeakReference<>(reader);
+		}
+
+		private CSVReaderMXBean live(){
+			CSVReader r = reader.get();
+			return (r == null)? null : r.new Monitor();
+		}
+
+		@Override
+		public long getCharsConsumed(){
+			CSVReaderMXBean m = live();
+			return (m == null)? 0 : m.getCharsConsumed();
+		}
+		@Override
+		public long getRecordCount(){
+			CSVReaderMXBean m = live();
+			return (m == null)? 0 : m.getRecordCount();
+		}
+		@Override
+		public long getFieldCount(){
+			CSVReaderMXBean m = live();
+			return (m == null)? 0 : m.getFieldCount();
+		}
+		@Override
+		public long getRefillCount(){
+			CSVReaderMXBean m = live();
+			return (m == null)? 0 : m.getRefillCount();
+		}
+		@Override
+		public long getReadBlockedNanos(){
+			CSVReaderMXBean m = live();
+			return (m == null)? 0 : m.getReadBlockedNanos();
+		}
+		@Override
+		public int getMaxRecordSize(){
+			CSVReaderMXBean m = live();
+			return (m == null)? 0 : m.getMaxRecordSize();
+		}
+		@Override
+		public int getFieldIndexGrowths(){
+			CSVReaderMXBean m = live();
+			return (m == null)? 0 : m.getFieldIndexGrowths();
+		}
+		@Override
+		public int getBufferSize(){
+			CSVReaderMXBean m = live();
+			return (m == null)? 0 : m.getBufferSize();
+		}
+		@Override
+		public long getSkippedCount(){
+			CSVReaderMXBean m = live();
+			return (m == null)? 0 : m.getSkippedCount();
+		}
+		@Override
+		public long getQuarantinedCount(){
+			CSVReaderMXBean m = live();
+			return (m == null)? 0 : m.getQuarantinedCount();
+		}
+	}
+
+	// Holds only the name, a reference to the reader would keep it reachable
+	private static final class Unregister implements Runnable{
+		private final ObjectName name;
+
+		Unregister(ObjectName name){
+			this.name = name;
+		}
+
+		@Override
+		public void run(){
+			try{
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+			}catch(JMException e){
+				// already gone
+			}
+		}
+	}
+
+	// Its thread only starts once instrumentation is first used
+	private static final class Registrations{
+		static final Cleaner CLEANER = Cleaner.create();
+	}
+
 	private void bitsetAdd(int num){
 		if(num < 65){
 			low |= (1L << (num-1));
@@ -261,21 +1115,235 @@ public final class CSVReader implements Iterator<CSVRecord>, AutoCloseable{
 		}
 
 		if(ioPos >= limit){
-			try{
-				limit = reader.read(ioBuff);
-				ioPos = 0;
-				
-				if(limit == -1){
-					return -1;
-				}	
-			}catch(IOException e){
-				throw new UncheckedIOException(e);
+			refill();
+			if(limit == -1){
+				return -1;
 			}
 		}
 
 		return ioBuff[ioPos++];
 	}
 
+	// With a prefetcher the finished buffer is swapped for one it has already filled
+	private int read() throws IOException{
+		if(prefetcher == null){
+			return reader.read(ioBuff);
+		}
+		CSVPrefetcher.Chunk chunk = prefetcher.take();
+		if(chunk.buffer == null){
+			return -1;
+		}
+		prefetcher.release(ioBuff);
+		ioBuff = chunk.buffer;
+		return chunk.length;
+	}
+
+	private void refill(){
+		if(limit > recStart){
+			int length = limit - recStart;
+			if(streamField || rawCut){
+				// a streamed field is never held, from here on only the record's start is kept for exceptions
+				int keep = Math.max(Math.min(length, LIMIT_EXCERPT - spill.length()), 0);
+				cutChars += length - keep;
+				rawCut = true;
+				length = keep;
+			}else if(spill.length() + (long)length > maxRecordChars){
+				// the record is over its limit whatever follows, only its start is kept for the exception
+				recordOverflow = true;
+				length = Math.max(maxRecordChars - spill.length(), 0);
+			}
+			spill.append(ioBuff, recStart, length);
+		}
+		recStart = 0;
+		if(limit == ioBuff.length && ioBuff.length < maxBufferSize){
+			if(++fullRefills == ADAPT_AFTER){
+				// everything before ioPos is consumed or spilled, so a fresh array can take over
+				ioBuff = new char[(int)Math.min(2L * ioBuff.length, maxBufferSize)];
+				fullRefills = 0;
+			}
+		}else{
+			fullRefills = 0;
+		}
+
+		// the chunk parsed out of the previous buffer ends here
+		if(chunkEvent != null && chunkEvent.shouldCommit()){
+			chunkEvent.chars = Math.max(limit, 0);
+			chunkEvent.records = recordNumber - chunkStartRecord;
+			chunkEvent.commit();
+		}
+
+		CSVEvents.BufferRefill refillEvent = new CSVEvents.BufferRefill();
+		refillEvent.begin();
+		refillCount++;
+		try{
+			if(instrumented){
+				long start = System.nanoTime();
+				limit = read();
+				readBlockedNanos += System.nanoTime() - start;
+			}else{
+				limit = read();
+			}
+		}catch(IOException e){
+			throw new UncheckedIOException(e);
+		}
+		ioPos = 0;
+		if(limit > 0){
+			charsRead += limit;
+		}
+		if(refillEvent.shouldCommit()){
+			refillEvent.chars = limit;
+			refillEvent.bufferSize = ioBuff.length;
+			refillEvent.commit();
+		}
+
+		if(limit > 0){
+			chunkEvent = new CSVEvents.ParseChunk();
+			chunkEvent.begin();
+			chunkStartRecord = recordNumber;
+		}else{
+			chunkEvent = null;
+		}
+	}
+
+	// Input consumed since the current record began, as is. A lookahead held in buffered is not part of it yet.
+	private StringBuilder rawText(){
+		if(recordOverflow || rawCut){
+			return new StringBuilder(spill); // what came after was not kept
+		}
+		int end = (buffered >= 0)? ioPos-1 : ioPos;
+		StringBuilder raw = new StringBuilder(spill.length() + Math.max(end - recStart, 0));
+		raw.append(spill);
+		if(end > recStart){
+			raw.append(ioBuff, recStart, end - recStart);
+		}
+		return raw;
+	}
+
+	// Input chars of the current record so far, as rawText() would have them without maxRecordChars
+	private long rawLength(){
+		int end = (buffered >= 0)? ioPos-1 : ioPos;
+		return spill.length() + cutChars + Math.max(end - recStart, 0);
+	}
+
+	// column is 1-based: the field being read, or at a field end the one just emitted
+	private CSVLimitException limitBreach(CSVLimitException.Limit limit, int column){
+		int value = (limit == CSVLimitException.Limit.RECORD_CHARS)? maxRecordChars
+			: (limit == CSVLimitException.Limit.FIELD_CHARS)? maxFieldChars : maxColumns;
+		StringBuilder raw = rawText();
+		raw.setLength(Math.min(raw.length(), LIMIT_EXCERPT));
+		return new CSVLimitException(limit, value, recordNumber+1, column, raw.toString());
+	}
+
+	// Raw text of the current record up to the char being processed, only built when an exception needs it
+	private String recHistory(){
+		return replayHistory(rawText(), mode, trimSpaces, inputClassTable);
+	}
+
+	// Replays the raw chars of a record the way next() consumed them: spaces skipped by trimming are
+	// dropped and CR/CRLF outside quotes become LF, which is what exceptions have always reported.
+	// Shared with CSVByteReader.
+	static String replayHistory(CharSequence raw, Mode mode, boolean trimSpaces, int[] inputClassTable){
+		StringBuilder history = new StringBuilder(raw.length());
+		int state = FIELD_START;
+		for(int i = 0; i<raw.length(); i++){
+			char c = raw.charAt(i);
+			if(trimSpaces && c == ' ' && state != QUOTED){
+				continue;
+			}
+			if(c == '\r' && state != QUOTED && mode != Mode.UNIX){
+				if(i+1 < raw.length() && raw.charAt(i+1) == '\n'){
+					i++;
+					c = '\n';
+				}else if(mode == Mode.LENIENT){
+					c = '\n';
+				}
+			}
+			history.append(c);
+			state = transition[state][(c < 128)? inputClassTable[c] : OTHER];
+		}
+		return history.toString();
+	}
+
+	private boolean isSelected(int column){
+		return selected == null || (column < selected.length && selected[column]);
+	}
+
+	private boolean isStreamed(int column){
+		if(streamed != null && column < streamed.length && streamed[column]){
+			streamColumn = column;
+			return true;
+		}
+		return false;
+	}
+
+	// -----------------------------------------------------
+	// Streamed fields
+
+	private void streamChar(char c){
+		if(streamPos == streamBuff.length){
+			flushStream();
+		}
+		streamBuff[streamPos++] = c;
+		streamedChars++;
+		droppedData = true;
+	}
+
+	// A bulk run goes out as it lies in ioBuff, no copy
+	private void streamRun(int start, int length){
+		flushStream();
+		streamedRecord = true;
+		fieldSink.chunk(recordNumber+1, streamColumn, ioBuff, start, length);
+		streamedChars += length;
+		droppedData = true;
+	}
+
+	private void flushStream(){
+		if(streamPos > 0){
+			streamedRecord = true;
+			fieldSink.chunk(recordNumber+1, streamColumn, streamBuff, 0, streamPos);
+			streamPos = 0;
+		}
+	}
+
+	private void endStream(){
+		flushStream();
+		streamedRecord = true;
+		fieldSink.end(recordNumber+1, streamColumn);
+	}
+
+	private void discardStreams(){
+		if(streamedRecord || streamPos > 0){
+			fieldSink.discard(recordNumber+1);
+		}
+	}
+
+	private void resetStreams(){
+		streamField = isStreamed(0);
+		streamPos = 0;
+		streamedChars = 0;
+		streamedRecord = false;
+	}
+
+	// End of the run of plain chars starting at ioPos, bounded by the current buffer
+	private int scanUnquoted(){
+		int i = ioPos;
+		while(i < limit){
+			char c = ioBuff[i];
+			if(c < 128 && unquotedStops[c]) break;
+			i++;
+		}
+		return i;
+	}
+
+	// Inside quotes only a quote can change anything, CR, LF and delimiters are plain data
+	private int scanQuoted(){
+		int i = ioPos;
+		while(i < limit && ioBuff[i] != '\"'){
+			i++;
+		}
+		return i;
+	}
+
 	private void perform(int act){
 		// FIELD_START = 0, UNQUOTED = 1,  QUOTED = 2, QUOTED_END = 3, DEAD = 4
 		// OTHER = 0, QUOTE = 1, CR = 2, LF = 3, EOF = 4, DELIMITER = 5
@@ -285,31 +1353,69 @@ public final class CSVReader implements Iterator<CSVRecord>, AutoCloseable{
 			case EMIT_RECORD:
 				recReady = true;
 			case EMIT_FIELD:
-				if(size == fieldLastIndices.length){
-					int capacity = size + (size >> 1);
-					int[] newArr = new int[capacity];
-
-					System.arraycopy(fieldLastIndices, 0, newArr, 0, size);
-
-					fieldLastIndices = newArr;
-				}
 				actualColumnCount++;
+				fieldChars = 0;
+				if(recordOverflow || rawLength() - streamedChars > maxRecordChars){
+					throw limitBreach(CSVLimitException.Limit.RECORD_CHARS, actualColumnCount);
+				}
+				if(actualColumnCount == maxColumns && !recReady && nextChar != -1){
+					throw limitBreach(CSVLimitException.Limit.COLUMNS, actualColumnCount); // a delimiter after the last allowed column
+				}
 				if(firstRecRead && actualColumnCount > expectedColumnCount){
-					throw new CSVFormatException(recordNumber+1, expectedColumnCount, actualColumnCount, recHistory.toString());
+					throw new CSVFormatException(recordNumber+1, expectedColumnCount, actualColumnCount, recHistory());
 				} 
-				fieldLastIndices[size] = recordBuffer.length();
-				size++;
+				if(keepField){
+					if(size == fieldLastIndices.length){
+						fieldIndexGrowths++;
+						int capacity = size + (size >> 1);
+						int[] newArr = new int[capacity];
+
+						System.arraycopy(fieldLastIndices, 0, newArr, 0, size);
+
+						fieldLastIndices = newArr;
+					}
+					fieldLastIndices[size] = recordBuffer.length();
+					size++;
+				}
+				if(streamField){
+					endStream();
+				}
+				keepField = isSelected(actualColumnCount);
+				streamField = isStreamed(actualColumnCount);
 				break;
 			case NO_OP:
+				if(streamField) streamedChars++; // a quote of the streamed field
 				break;
 			case APPEND:
-				recordBuffer.append((char)nextChar);
+				if(streamField){
+					streamChar((char)nextChar);
+					break;
+				}
+				if(++fieldChars > maxFieldChars || recordOverflow){
+					throw limitBreach(recordOverflow? CSVLimitException.Limit.RECORD_CHARS : CSVLimitException.Limit.FIELD_CHARS, actualColumnCount+1);
+				}
+				if(keepField) recordBuffer.append((char)nextChar);
+				else droppedData = true;
 				break;
 			case THROW_ERROR:
 				throw new CSVFormatException(recordNumber+1, actualColumnCount+1, mode.name(), trimSpaces);
 		}
 	}
 	
+	// normalise CR/CRLF to LF, a branch on mode rather than a call through a handler per char
+	private void normaliseEnding(){
+		switch(mode){
+			case WINDOWS:
+				windowsEnding();
+				break;
+			case LENIENT:
+				lenientEnding();
+				break;
+			default:
+				break; // UNIX, a CR is an error the tables already catch
+		}
+	}
+
 	private void windowsEnding(){
 		if(nextChar == '\r' && state != QUOTED){
 		        // In Windows Mode, when CR is currently read,
@@ -319,6 +1425,7 @@ public final class CSVReader implements Iterator<CSVRecord>, AutoCloseable{
 		        int lookahead = bufferedRead();
 
 		        if(lookahead != '\n'){
+		                buffered = lookahead; // left for error recovery to resume from
 		                perform(THROW_ERROR);
 		        }else{
 		                nextChar = lookahead;
@@ -351,8 +1458,13 @@ public final class CSVReader implements Iterator<CSVRecord>, AutoCloseable{
 	
 	private void delayedCommit(int ch){
 		if(ch == OTHER){
+			if(countTrailSpaces > maxFieldChars - fieldChars && !streamField){
+				throw limitBreach(CSVLimitException.Limit.FIELD_CHARS, actualColumnCount+1);
+			}
+			fieldChars += countTrailSpaces;
 			while(countTrailSpaces > 0){
-				recordBuffer.append(' ');
+				if(streamField) streamChar(' ');
+				else if(keepField) recordBuffer.append(' ');
 				countTrailSpaces--;
 			}
 		}else{
@@ -360,13 +1472,254 @@ public final class CSVReader implements Iterator<CSVRecord>, AutoCloseable{
 		}
 	}
 	
+	private CSVRecord takeRecord(){
+		clearPending = true;
+		if(recordBuffer.length() > oversizeThreshold){
+			CSVEvents.RecordOversize event = new CSVEvents.RecordOversize();
+			if(event.shouldCommit()){
+				event.recordNumber = recordNumber+1;
+				event.chars = recordBuffer.length();
+				event.threshold = oversizeThreshold;
+				event.commit();
+			}
+		}
+		if(instrumented){
+			recordCount++;
+			fieldCount += actualColumnCount;
+			maxRecordSize = Math.max(maxRecordSize, recordBuffer.length());
+		}
+		if(batching){
+			batch.append(recordBuffer, fieldLastIndices, size, recordSize, recordNumber+1);
+			return null;
+		}
+		if(reuseRecords){
+			view.reset(recordBuffer, fieldLastIndices, recordSize, recordNumber+1);
+			return view;
+		}
+		return new CSVRecord(recordBuffer.toString(), fieldLastIndices, recordSize, recordNumber+1, header, dictionaries);
+	}
+
 	@Override
 	public boolean hasNext(){
 		return !finished || recReady;
 	}
 
+	// Records in file order; under parallel() batches of parsed records go to the fork-join pool
+	// while this reader keeps parsing. Closing the stream closes the reader.
+	public Stream<CSVRecord> stream(){
+		return StreamSupport.stream(new CSVSpliterator(this, reuseRecords), false).onClose(this::close);
+	}
+
+	public long getSkippedCount(){
+		return skippedCount;
+	}
+
+	public long getQuarantinedCount(){
+		return quarantinedCount;
+	}
+
+	// When the last record is the malformed one there is nothing left to return,
+	// and next() ends with NoSuchElementException just like on a blank last line
 	@Override
 	public CSVRecord next() throws NoSuchElementException{
+		if(errorPolicy == ErrorPolicy.FAIL){
+			try{
+				return parseNext();
+			}catch(CSVFormatException e){
+				e.setFile(file);
+				discardStreams();
+				throw e;
+			}
+		}
+		while(true){
+			try{
+				return parseNext();
+			}catch(CSVFormatException e){
+				e.setFile(file);
+				discardStreams();
+				recover(e);
+				if(finished){
+					throw new NoSuchElementException();
+				}
+			}
+		}
+	}
+
+	// Up to maxRows records in columnar form, straight from recordBuffer without a CSVRecord per row.
+	// The batch is reused by the next call; it comes back empty once the input is exhausted.
+	// A CSVFormatException after some rows comes with the next call, the rows before it are returned first.
+	public CSVColumnBatch nextBatch(int maxRows){
+		if(maxRows <= 0){
+			throw new IllegalArgumentException("Batch size must be positive");
+		}
+		if(batchError != null){
+			CSVFormatException e = batchError;
+			batchError = null;
+			throw e;
+		}
+		if(batch == null){
+			batch = new CSVColumnBatch();
+		}
+		batch.clear();
+		batching = true;
+		try{
+			while(batch.getRowCount() < maxRows && hasNext()){
+				next();
+			}
+		}catch(NoSuchElementException e){
+			// blank last line
+		}catch(CSVFormatException e){
+			if(batch.getRowCount() == 0){
+				throw e;
+			}
+			batchError = e;
+		}finally{
+			batching = false;
+		}
+		return batch;
+	}
+
+	// Drops the record that e was thrown for and leaves the reader at the start of the next one
+	private void recover(CSVFormatException e){
+		StringBuilder raw;
+		if(resync() && !recordOverflow && !rawCut){
+			raw = rawText();
+			int len = raw.length();
+			boolean lf = raw.charAt(len-1) == '\n';
+			if(lf) len--;
+			if(len > 0 && raw.charAt(len-1) == '\r' && (mode == Mode.LENIENT || (lf && mode == Mode.WINDOWS))) len--;
+			raw.setLength(len);
+		}else{
+			raw = rawText();
+		}
+
+		if(errorPolicy == ErrorPolicy.QUARANTINE){
+			quarantinedCount++;
+			quarantineSink.quarantine(e, raw.toString());
+		}else{
+			skippedCount++;
+		}
+
+		resetRecordBuffer();
+		if(!firstRecRead && fieldLastIndices.length > 128){
+			fieldLastIndices = new int[128]; // grown by a first record with too many columns
+		}
+		size = 0;
+		actualColumnCount = 0;
+		fieldChars = 0;
+		keepField = isSelected(0);
+		droppedData = false;
+		resetStreams();
+		countTrailSpaces = 0;
+		recReady = false;
+		state = FIELD_START;
+		recordNumber++;
+
+		nextChar = bufferedRead();
+		recStart = ioPos-1;
+		resetSpill();
+		if(nextChar == -1){
+			finished = true;
+		}
+		indexRecordStart();
+	}
+
+	// Reads up to the next line ending outside quotes, false if the input ran out first.
+	// A char the FSM would reject is taken as more unquoted garbage, so a stray quote cannot swallow the lines after it.
+	private boolean resync(){
+		int c = nextChar;
+		int s = state;
+		while(c != -1){
+			if(c == '\r' && mode == Mode.LENIENT && s != QUOTED){
+				int lookahead = bufferedRead();
+				if(lookahead != '\n'){
+					buffered = lookahead;
+				}
+				return true;
+			}
+			int ch = (c<128)? inputClassTable[c] : OTHER;
+			s = transition[s][ch];
+			if(ch == LF && s == FIELD_START){
+				return true;
+			}
+			if(s == DEAD){
+				s = UNQUOTED;
+			}
+			c = bufferedRead();
+		}
+		return false;
+	}
+
+	// Empties recordBuffer for the next record. One grown for a record far larger than the recent
+	// ones is let go, so a single oversized record does not pin its memory for the rest of the input.
+	private void resetRecordBuffer(){
+		if(recordBuffer.capacity() > SHRINK_FLOOR && recordBuffer.capacity() > 4L * maxRecSizeSeen){
+			recordBuffer = new StringBuilder(maxRecSizeSeen);
+		}else{
+			recordBuffer.setLength(0);
+			recordBuffer.ensureCapacity(maxRecSizeSeen);
+		}
+	}
+
+	private void resetSpill(){
+		if(spill.capacity() > SHRINK_FLOOR && spill.capacity() > 4L * maxRecSizeSeen){
+			spill = new StringBuilder();
+		}else{
+			spill.setLength(0);
+		}
+		recordOverflow = false;
+		rawCut = false;
+		cutChars = 0;
+	}
+
+	private CSVRecord parseNext(){
+		if(clearPending){
+			resetRecordBuffer();
+			clearPending = false;
+		}
+		return plainEngine? parsePlain() : parseGeneral();
+	}
+
+	// No trimming and no trace: no spaces held back, nothing printed, and only a CR or LF can need its
+	// line ending normalised, so every other char takes one class lookup and one step lookup
+	private CSVRecord parsePlain(){
+		boolean normalise = mode != Mode.UNIX;
+		while(true){
+			int ch = (nextChar == -1)? EOF : (nextChar<128)? inputClassTable[nextChar] : OTHER;
+			if(normalise && (ch == CR || ch == LF)){
+				normaliseEnding();
+				ch = inputClassTable[nextChar]; // still a CR or LF
+			}
+			int next = step[state*CLASSES + ch];
+
+			perform(next & ACTION_MASK);
+
+			state = next >>> STEP_SHIFT;
+
+			if(recReady){
+				CSVRecord r = recordEnded();
+				if(finished){
+					break;
+				}
+				return r;
+			}
+
+			if(ch == EOF){
+				finished = true;
+				break;
+			}
+
+			if(buffered == -2 && (state == UNQUOTED || state == QUOTED)){
+				appendRun();
+			}
+
+			nextChar = bufferedRead();
+		}
+		return lastRecord();
+	}
+
+	// Trimming and/or trace, every char goes through all the checks
+	private CSVRecord parseGeneral(){
 		while(true){
 			// In Trim Mode, read but do not process space chars at FIELD_START
 			if(trimSpaces && nextChar == ' ' && state == FIELD_START){
@@ -380,63 +1733,25 @@ public final class CSVReader implements Iterator<CSVRecord>, AutoCloseable{
 				continue;
 			}
 			
-			// normalise CR/CRLF to LF
-			endingHandler.handle();
-
-			if(nextChar != -1) recHistory.append((char)nextChar);
+			normaliseEnding();
 
 			int ch = (nextChar == -1)? EOF : (nextChar<128)? inputClassTable[nextChar] : OTHER;
-			int act = action[state][ch];
+			int next = step[state*CLASSES + ch];
 			
 			// Delayed commit before performing action when OTHER char encountered
 			delayedCommit(ch);
 			
-			perform(act);
+			perform(next & ACTION_MASK);
 
 			if(enableFSMTrace) getFSMTrace();
 
-			state = transition[state][ch];                     
+			state = next >>> STEP_SHIFT;
 
 			if(recReady){
-				int len = recordBuffer.length();
-				maxRecSizeSeen = (maxRecSizeSeen > len)? maxRecSizeSeen:len;
-				if(!firstRecRead){
-					firstRecRead = true;				
-					expectedColumnCount = size;
-					int[] newArr = new int[size];
-
-					System.arraycopy(fieldLastIndices, 0, newArr, 0, size);
-
-					fieldLastIndices = newArr;
-				}
-
-				if(actualColumnCount < expectedColumnCount){
-					String recHistoryString = recHistory.toString().replace("\r", "<CR>").replace("\n", "<LF>");
-					throw new CSVFormatException(recordNumber+1, expectedColumnCount, actualColumnCount, recHistoryString);
-				} 
-
-				recReady = false;
-				nextChar = bufferedRead();
-				state = FIELD_START;
-
-				// To deal with edge cases of the form "(...)     \r\n"
-				if(nextChar == -1){
-					finished = true;
+				CSVRecord r = recordEnded();
+				if(finished){
 					break;
 				}
-
-				String record = recordBuffer.toString();
-				
-				CSVRecord r = new CSVRecord(record, fieldLastIndices, expectedColumnCount);
-				recordBuffer.setLength(0);
-				recordBuffer.ensureCapacity(maxRecSizeSeen);
-				recHistory.setLength(0);
-
-				size = 0;
-				actualColumnCount = 0;
-
-				recordNumber++;
-
 				return r;
 			}
 
@@ -444,17 +1759,113 @@ public final class CSVReader implements Iterator<CSVRecord>, AutoCloseable{
 				finished = true;
 				break;
 			}
+
+			if(scanRuns && buffered == -2 && (state == UNQUOTED || state == QUOTED)){
+				appendRun();
+			}
 			
 			nextChar = bufferedRead();
 		}
+		return lastRecord();
+	}
+
+	// Bulk path: a run of chars that would each just be APPENDed without changing state
+	// is copied in one go. Pending trailing spaces are always committed by now.
+	private void appendRun(){
+		int end = (state == QUOTED)? scanQuoted() : scanUnquoted();
+		int run = end - ioPos;
+		// a run that would break the field limit is left to APPEND, which stops at the exact char
+		if(streamField){
+			if(run > 0){
+				streamRun(ioPos, run);
+				ioPos = end;
+			}
+		}else if(run > 0 && run <= maxFieldChars - fieldChars){
+			fieldChars += run;
+			if(keepField) recordBuffer.append(ioBuff, ioPos, run);
+			else droppedData = true;
+			ioPos = end;
+		}
+	}
+
+	// After EMIT_RECORD: the record is checked and taken, and the reader moves on to the next one.
+	// Only sets finished when nothing follows, lastRecord() then flushes it as at EOF.
+	private CSVRecord recordEnded(){
+		int len = recordBuffer.length();
+		maxRecSizeSeen = (maxRecSizeSeen > len)? maxRecSizeSeen:len;
+		windowMaxRecSize = (windowMaxRecSize > len)? windowMaxRecSize:len;
+		if(++windowRecords == SHRINK_WINDOW){
+			// window full: only its own max carries over, so a large record stops counting one to two windows later
+			maxRecSizeSeen = Math.max(windowMaxRecSize, 64);
+			windowMaxRecSize = 0;
+			windowRecords = 0;
+		}
+		if(!firstRecRead){
+			if(resumeColumnCount != 0 && actualColumnCount != resumeColumnCount){
+				String recHistoryString = recHistory().replace("\r", "<CR>").replace("\n", "<LF>");
+				throw new CSVFormatException(recordNumber+1, resumeColumnCount, actualColumnCount, recHistoryString);
+			}
+			firstRecRead = true;				
+			expectedColumnCount = actualColumnCount;
+			recordSize = size;
+			int[] newArr = new int[size];
+
+			System.arraycopy(fieldLastIndices, 0, newArr, 0, size);
+
+			fieldLastIndices = newArr;
+		}
+
+		if(actualColumnCount < expectedColumnCount){
+			throw shortRecord();
+		} 
+
+		recReady = false;
+		nextChar = bufferedRead();
+		state = FIELD_START;
 
+		// To deal with edge cases of the form "(...)     \r\n"
+		if(nextChar == -1){
+			finished = true;
+			return null;
+		}
+
+		CSVRecord r = takeRecord();
+		recStart = ioPos-1; // nextChar opens the next record
+		resetSpill();
+
+		size = 0;
+		actualColumnCount = 0;
+		keepField = isSelected(0);
+		droppedData = false;
+		resetStreams();
+
+		recordNumber++;
+		indexRecordStart();
+
+		return r;
+	}
+
+	private CSVFormatException shortRecord(){
+		String recHistoryString = recHistory().replace("\r", "<CR>").replace("\n", "<LF>");
+		return new CSVFormatException(recordNumber+1, expectedColumnCount, actualColumnCount, recHistoryString);
+	}
+
+	private CSVRecord lastRecord(){
 		// Flush at EOF
 		// !recordBuffer.isEmpty() guards against completely empty inputs
-		if(finished && !recordBuffer.isEmpty()){
-			String record = recordBuffer.toString();
-
-			CSVRecord r = new CSVRecord(record, fieldLastIndices, expectedColumnCount);
-			recordBuffer.setLength(0);
+		if(finished && (!recordBuffer.isEmpty() || droppedData)){
+			if(!firstRecRead && recordNumber > 0){
+				recordSize = size; // a resumed reader opened at the last record, which is unterminated
+			}
+			// an unterminated last record is checked like any other
+			if(!firstRecRead && resumeColumnCount != 0 && actualColumnCount != resumeColumnCount){
+				String recHistoryString = recHistory().replace("\r", "<CR>").replace("\n", "<LF>");
+				throw new CSVFormatException(recordNumber+1, resumeColumnCount, actualColumnCount, recHistoryString);
+			}
+			if(firstRecRead && actualColumnCount < expectedColumnCount){
+				throw shortRecord();
+			}
+			CSVRecord r = takeRecord();
 			recordNumber++;
 
 			return r;
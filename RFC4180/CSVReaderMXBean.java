@@ -0,0 +1,18 @@
+package RFC4180;
+
+// Live counters of a CSVReader built with Builder.enableInstrumentation(true), registered
+// with the platform MBeanServer as RFC4180:type=CSVReader,id=<n> until the reader is closed, or is
+// collected: the server only holds it weakly, so a reader that is never closed does not leak.
+// Values are read without synchronisation while the reader runs, so they may lag slightly.
+public interface CSVReaderMXBean{
+	long getCharsConsumed();
+	long getRecordCount();
+	long getFieldCount();
+	long getRefillCount();
+	long getReadBlockedNanos(); // time spent waiting in Reader.read()
+	int getMaxRecordSize(); // chars
+	int getFieldIndexGrowths(); // times the field index array had to grow
+	int getBufferSize();
+	long getSkippedCount();
+	long getQuarantinedCount();
+}
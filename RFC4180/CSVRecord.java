@@ -1,28 +1,499 @@
 package RFC4180;
 
+import java.util.Arrays;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Collections;
 
+import java.nio.charset.StandardCharsets;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
 public final class CSVRecord{
-	private String record;
+	private CharSequence record; // a String, or the reader's own buffer for a reusable view
+	private byte[] utf8Record; // set instead of record when produced by CSVByteReader
 	private int[] fieldLastIndices;
 	private int expectedColumnCount;
+	private int recordNumber; // 1-based, as reported by CSVFormatException
+	private CSVHeader header; // shared by all records of a reader built withHeader(true)
+	private CSVDictionary[] dictionaries; // shared too, by field index, null when no column has one
+	private String[] dictValues; // per field, what its one dictionary lookup gave; null until the first one
+	private int[] dictCodes;
 
-        CSVRecord(String record, int[] fieldLastIndices, int expectedColumnCount){
+	// Reusable views, only valid until the reader's next next() call
+	private final boolean view;
+	private FieldView[] fieldViews;
+
+        CSVRecord(String record, int[] fieldLastIndices, int expectedColumnCount, int recordNumber){
+		this(record, fieldLastIndices, expectedColumnCount, recordNumber, null, null);
+        }
+
+	CSVRecord(String record, int[] fieldLastIndices, int expectedColumnCount, int recordNumber,
+			CSVHeader header, CSVDictionary[] dictionaries){
 		this.record = record;
 		this.fieldLastIndices = fieldLastIndices.clone();
 		this.expectedColumnCount = expectedColumnCount;
-        }
+		this.recordNumber = recordNumber;
+		this.header = header;
+		this.dictionaries = dictionaries;
+		this.view = false;
+	}
+
+	// fieldLastIndices are byte offsets here, fields are only decoded when asked for
+	CSVRecord(byte[] utf8Record, int[] fieldLastIndices, int expectedColumnCount, int recordNumber){
+		this.utf8Record = utf8Record;
+		this.fieldLastIndices = fieldLastIndices.clone();
+		this.expectedColumnCount = expectedColumnCount;
+		this.recordNumber = recordNumber;
+		this.view = false;
+	}
+
+	private CSVRecord(){
+		this.view = true;
+	}
+
+	static CSVRecord view(){
+		return new CSVRecord();
+	}
+
+	void setColumns(CSVHeader header, CSVDictionary[] dictionaries){
+		this.header = header;
+		this.dictionaries = dictionaries;
+	}
+
+	// Points the view at the reader's buffers, nothing is copied
+	void reset(CharSequence record, int[] fieldLastIndices, int expectedColumnCount, int recordNumber){
+		this.record = record;
+		this.fieldLastIndices = fieldLastIndices;
+		this.expectedColumnCount = expectedColumnCount;
+		this.recordNumber = recordNumber;
+		if(dictValues != null){
+			Arrays.fill(dictValues, null);
+		}
+	}
 
         public int getRecordSize(){
                 return expectedColumnCount;
         }
 
+	public int getRecordNumber(){
+		return recordNumber;
+	}
+
+	// null unless the reader was built withHeader(true)
+	public CSVHeader getHeader(){
+		return header;
+	}
+
+	// Column of a header name, the by-name accessors below go through it
+	private int column(String name){
+		if(header == null){
+			throw new IllegalStateException("Record has no header");
+		}
+		int fIndex = header.indexOf(name);
+		if(fIndex < 0){
+			throw new IllegalArgumentException("No column named " + name);
+		}
+		return fIndex;
+	}
+
+	int fieldStart(int fIndex){
+		return (fIndex == 0)? 0 : fieldLastIndices[fIndex-1];
+	}
+
+	int fieldEnd(int fIndex){
+		return fieldLastIndices[fIndex];
+	}
+
+	// What the fields are stored in, for CSVWriter to copy them out without a String per field;
+	// exactly one of the two is set
+	CharSequence chars(){
+		return record;
+	}
+
+	byte[] utf8(){
+		return utf8Record;
+	}
+
         public String getField(int fIndex){
-		if(fIndex == 0){
-			return record.substring(0, fieldLastIndices[fIndex]);
+		int start = fieldStart(fIndex);
+		if(utf8Record != null){
+			return new String(utf8Record, start, fieldLastIndices[fIndex]-start, StandardCharsets.UTF_8);
+		}
+		CSVDictionary dictionary = dictionary(fIndex);
+		if(dictionary != null){
+			resolve(dictionary, fIndex);
+			return dictValues[fIndex];
 		}
-                return record.substring(fieldLastIndices[fIndex-1], fieldLastIndices[fIndex]);
+                return record.subSequence(start, fieldLastIndices[fIndex]).toString();
         }
+
+	private CSVDictionary dictionary(int fIndex){
+		return (dictionaries != null && fIndex < dictionaries.length)? dictionaries[fIndex] : null;
+	}
+
+	// Dictionary code of the field, see CSVDictionary.code(). A code is only safe to compare with codes
+	// of records read since: once its value is evicted, a later record can get it for another value.
+	public int getCode(int fIndex){
+		CSVDictionary dictionary = dictionary(fIndex);
+		if(dictionary == null){
+			throw new IllegalStateException("Field " + fIndex + " has no dictionary");
+		}
+		resolve(dictionary, fIndex);
+		return dictCodes[fIndex];
+	}
+
+	// getField() and getCode() of one field share a single lookup, so it counts (and marks CLOCK) once
+	private void resolve(CSVDictionary dictionary, int fIndex){
+		if(dictValues == null){
+			dictValues = new String[dictionaries.length];
+			dictCodes = new int[dictionaries.length];
+		}
+		if(dictValues[fIndex] == null){
+			dictCodes[fIndex] = dictionary.resolve(record, fieldStart(fIndex), fieldLastIndices[fIndex], dictValues, fIndex);
+		}
+	}
+
+	// Field without copying it out of the record, for a view it follows the view
+	public CharSequence getFieldSequence(int fIndex){
+		if(utf8Record != null){
+			return getField(fIndex);
+		}
+		if(fieldViews == null || fieldViews.length < expectedColumnCount){
+			FieldView[] views = new FieldView[expectedColumnCount];
+			if(fieldViews != null){
+				System.arraycopy(fieldViews, 0, views, 0, fieldViews.length);
+			}
+			fieldViews = views;
+		}
+		if(fieldViews[fIndex] == null){
+			fieldViews[fIndex] = new FieldView(this, fIndex);
+		}
+		return fieldViews[fIndex];
+	}
+
+	// Copies the field into dst at dstOff and returns its length
+	public int copyField(int fIndex, char[] dst, int dstOff){
+		int start = fieldStart(fIndex);
+		int end = fieldLastIndices[fIndex];
+		if(utf8Record != null){
+			String field = getField(fIndex);
+			field.getChars(0, field.length(), dst, dstOff);
+			return field.length();
+		}
+		if(record instanceof String){
+			((String)record).getChars(start, end, dst, dstOff);
+		}else{
+			((StringBuilder)record).getChars(start, end, dst, dstOff);
+		}
+		return end - start;
+	}
+
+	// Detached copy that survives further reads, records that are not views are returned as is
+	public CSVRecord snapshot(){
+		if(!view){
+			return this;
+		}
+		CSVRecord copy = new CSVRecord(record.toString(), fieldLastIndices, expectedColumnCount, recordNumber, header, dictionaries);
+		if(dictValues != null){
+			copy.dictValues = dictValues.clone(); // fields already looked up are not counted again
+			copy.dictCodes = dictCodes.clone();
+		}
+		return copy;
+	}
+
+	// -----------------------------------------------------
+	// Access by header name, same as by the column's index
+
+	public String getField(String name){
+		return getField(column(name));
+	}
+
+	public int getCode(String name){
+		return getCode(column(name));
+	}
+
+	public CharSequence getFieldSequence(String name){
+		return getFieldSequence(column(name));
+	}
+
+	public boolean isEmpty(String name){
+		return isEmpty(column(name));
+	}
+
+	public int getInt(String name){
+		return getInt(column(name));
+	}
+
+	public int getInt(String name, int defaultValue){
+		return getInt(column(name), defaultValue);
+	}
+
+	public long getLong(String name){
+		return getLong(column(name));
+	}
+
+	public long getLong(String name, long defaultValue){
+		return getLong(column(name), defaultValue);
+	}
+
+	public double getDouble(String name){
+		return getDouble(column(name));
+	}
+
+	public double getDouble(String name, double defaultValue){
+		return getDouble(column(name), defaultValue);
+	}
+
+	public boolean getBoolean(String name){
+		return getBoolean(column(name));
+	}
+
+	public long getEpochDay(String name){
+		return getEpochDay(column(name));
+	}
+
+	public LocalDate getDate(String name){
+		return getDate(column(name));
+	}
+
+	// -----------------------------------------------------
+	// Typed accessors, parsed straight from the record's backing chars (no substring).
+	// Empty cells throw like any other unparsable cell unless a default is given.
+
+	// Bytes of a CSVByteReader record are looked at one by one, anything non-ASCII is simply not a digit
+	private char charAt(int i){
+		return (utf8Record != null)? (char)(utf8Record[i] & 0xFF) : record.charAt(i);
+	}
+
+	private CSVFormatException fieldError(int fIndex, String type){
+		return new CSVFormatException(recordNumber, fIndex+1, getField(fIndex), type);
+	}
+
+	public boolean isEmpty(int fIndex){
+		return fieldStart(fIndex) == fieldLastIndices[fIndex];
+	}
+
+	public int getInt(int fIndex){
+		return (int)parseLong(fIndex, Integer.MIN_VALUE, Integer.MAX_VALUE, "int");
+	}
+
+	public int getInt(int fIndex, int defaultValue){
+		return isEmpty(fIndex)? defaultValue : getInt(fIndex);
+	}
+
+	public long getLong(int fIndex){
+		return parseLong(fIndex, Long.MIN_VALUE, Long.MAX_VALUE, "long");
+	}
+
+	public long getLong(int fIndex, long defaultValue){
+		return isEmpty(fIndex)? defaultValue : getLong(fIndex);
+	}
+
+	// Optional sign and decimal digits, accumulated negatively like Long.parseLong()
+	private long parseLong(int fIndex, long min, long max, String type){
+		int i = fieldStart(fIndex);
+		int end = fieldLastIndices[fIndex];
+		if(i == end){
+			throw fieldError(fIndex, type);
+		}
+
+		boolean negative = false;
+		char first = charAt(i);
+		if(first == '-' || first == '+'){
+			negative = (first == '-');
+			if(++i == end){
+				throw fieldError(fIndex, type);
+			}
+		}
+
+		long limit = negative? min : -max;
+		long multmin = limit / 10;
+		long result = 0;
+		for(; i<end; i++){
+			int digit = charAt(i) - '0';
+			if(digit < 0 || digit > 9 || result < multmin){
+				throw fieldError(fIndex, type);
+			}
+			result *= 10;
+			if(result < limit + digit){
+				throw fieldError(fIndex, type);
+			}
+			result -= digit;
+		}
+		return negative? result : -result;
+	}
+
+	private static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+		1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+
+	// [+-] digits [. digits] [(e|E) [+-] digits]
+	// Up to 15 significant digits and a power of ten up to 22 are exact in a double, so those
+	// are computed in place; anything longer is validated here and handed to Double.parseDouble()
+	public double getDouble(int fIndex){
+		int i = fieldStart(fIndex);
+		int end = fieldLastIndices[fIndex];
+
+		boolean negative = false;
+		if(i < end && (charAt(i) == '-' || charAt(i) == '+')){
+			negative = (charAt(i) == '-');
+			i++;
+		}
+
+		long mantissa = 0;
+		int significant = 0, digits = 0, scale = 0;
+		boolean point = false;
+		for(; i<end; i++){
+			char c = charAt(i);
+			if(c >= '0' && c <= '9'){
+				digits++;
+				if(mantissa != 0 || c != '0'){
+					if(++significant <= 15){
+						mantissa = mantissa * 10 + (c - '0');
+						if(point) scale--;
+					}else if(!point){
+						scale++; // digit dropped from the fast path, only its magnitude counts
+					}
+				}else if(point){
+					scale--;
+				}
+			}else if(c == '.' && !point){
+				point = true;
+			}else{
+				break;
+			}
+		}
+		if(digits == 0){
+			throw fieldError(fIndex, "double");
+		}
+
+		if(i < end){
+			char c = charAt(i);
+			if(c != 'e' && c != 'E' || ++i == end){
+				throw fieldError(fIndex, "double");
+			}
+			boolean negativeExp = false;
+			if(charAt(i) == '-' || charAt(i) == '+'){
+				negativeExp = (charAt(i) == '-');
+				if(++i == end){
+					throw fieldError(fIndex, "double");
+				}
+			}
+			int exp = 0;
+			for(; i<end; i++){
+				int digit = charAt(i) - '0';
+				if(digit < 0 || digit > 9){
+					throw fieldError(fIndex, "double");
+				}
+				if(exp < 100000){
+					exp = exp * 10 + digit;
+				}
+			}
+			scale += negativeExp? -exp : exp;
+		}
+
+		if(significant <= 15 && scale >= -22 && scale <= 22){
+			double value = (scale < 0)? mantissa / POWERS_OF_TEN[-scale] : mantissa * POWERS_OF_TEN[scale];
+			return negative? -value : value;
+		}
+		return Double.parseDouble(getField(fIndex));
+	}
+
+	public double getDouble(int fIndex, double defaultValue){
+		return isEmpty(fIndex)? defaultValue : getDouble(fIndex);
+	}
+
+	// "true" or "false", ignoring case
+	public boolean getBoolean(int fIndex){
+		int start = fieldStart(fIndex);
+		int len = fieldLastIndices[fIndex] - start;
+		if(len == 4 && matches(start, "true")){
+			return true;
+		}
+		if(len == 5 && matches(start, "false")){
+			return false;
+		}
+		throw fieldError(fIndex, "boolean");
+	}
+
+	private boolean matches(int start, String word){
+		for(int i = 0; i<word.length(); i++){
+			if((charAt(start+i) | 0x20) != word.charAt(i)){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// ISO-8601 local date (yyyy-MM-dd) as days since 1970-01-01
+	public long getEpochDay(int fIndex){
+		int start = fieldStart(fIndex);
+		if(fieldLastIndices[fIndex] - start != 10 || charAt(start+4) != '-' || charAt(start+7) != '-'){
+			throw fieldError(fIndex, "date");
+		}
+		int year = digits(fIndex, start, 4);
+		int month = digits(fIndex, start+5, 2);
+		int day = digits(fIndex, start+8, 2);
+		try{
+			return LocalDate.of(year, month, day).toEpochDay();
+		}catch(DateTimeException e){
+			throw fieldError(fIndex, "date");
+		}
+	}
+
+	public LocalDate getDate(int fIndex){
+		return LocalDate.ofEpochDay(getEpochDay(fIndex));
+	}
+
+	private int digits(int fIndex, int from, int count){
+		int value = 0;
+		for(int i = from; i<from+count; i++){
+			int digit = charAt(i) - '0';
+			if(digit < 0 || digit > 9){
+				throw fieldError(fIndex, "date");
+			}
+			value = value * 10 + digit;
+		}
+		return value;
+	}
+
+	private static final class FieldView implements CharSequence{
+		private final CSVRecord rec;
+		private final int fIndex;
+
+		FieldView(CSVRecord rec, int fIndex){
+			this.rec = rec;
+			this.fIndex = fIndex;
+		}
+
+		@Override
+		public int length(){
+			return rec.fieldLastIndices[fIndex] - rec.fieldStart(fIndex);
+		}
+
+		@Override
+		public char charAt(int index){
+			if(index < 0 || index >= length()){
+				throw new IndexOutOfBoundsException(index);
+			}
+			return rec.record.charAt(rec.fieldStart(fIndex) + index);
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end){
+			if(start < 0 || end > length() || start > end){
+				throw new IndexOutOfBoundsException();
+			}
+			int base = rec.fieldStart(fIndex);
+			return rec.record.subSequence(base + start, base + end);
+		}
+
+		@Override
+		public String toString(){
+			return rec.getField(fIndex);
+		}
+	}
 }
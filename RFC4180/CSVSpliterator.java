@@ -0,0 +1,82 @@
+package RFC4180;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+// Spliterator over a reader's records. A reader can only go one record at a time, so trySplit()
+// parses a batch on the calling thread and hands it off as an array, the batch growing with every
+// split so that fork-join tasks of a parallel stream get more work the longer the stream runs.
+// The size is never reported: skipped records and a blank last line leave no exact count to give.
+final class CSVSpliterator implements Spliterator<CSVRecord>{
+	static final int BATCH_UNIT = 1 << 10;
+	static final int MAX_BATCH = 1 << 25;
+
+	private final Iterator<CSVRecord> reader;
+	private final boolean views; // the reader hands out one reusable view, batches need snapshots
+	private int batch;
+	private boolean done;
+
+	CSVSpliterator(Iterator<CSVRecord> reader, boolean views){
+		this.reader = reader;
+		this.views = views;
+	}
+
+	private CSVRecord nextRecord(){
+		if(done || !reader.hasNext()){
+			done = true;
+			return null;
+		}
+		try{
+			return reader.next();
+		}catch(NoSuchElementException e){
+			// blank last line
+			done = true;
+			return null;
+		}
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super CSVRecord> action){
+		CSVRecord r = nextRecord();
+		if(r == null){
+			return false;
+		}
+		action.accept(r);
+		return true;
+	}
+
+	@Override
+	public Spliterator<CSVRecord> trySplit(){
+		if(done){
+			return null;
+		}
+		int n = Math.min(batch + BATCH_UNIT, MAX_BATCH);
+		CSVRecord[] records = new CSVRecord[n];
+		int count = 0;
+		while(count < n){
+			CSVRecord r = nextRecord();
+			if(r == null){
+				break;
+			}
+			records[count++] = views? r.snapshot() : r;
+		}
+		if(count == 0){
+			return null;
+		}
+		batch = count;
+		return Spliterators.spliterator(records, 0, count, ORDERED | NONNULL);
+	}
+
+	@Override
+	public long estimateSize(){
+		return done? 0 : Long.MAX_VALUE;
+	}
+
+	@Override
+	public int characteristics(){
+		return ORDERED | NONNULL;
+	}
+}
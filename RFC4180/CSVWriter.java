@@ -0,0 +1,382 @@
+package RFC4180;
+
+import static RFC4180.CSVReader.*;
+
+import java.util.List;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+// Writes records that a CSVReader built from the same Builder reads back as they were: same line endings
+// (LF for UNIX, CRLF for WINDOWS and LENIENT), the first delimiter between fields, and trimming respected.
+// A field is only quoted when it has to be, found with a class table like CSVReader's inputClassTable:
+// any quote, CR, LF or delimiter in it, or with trimming a space that would be trimmed away.
+// Output is escaped straight into one reusable buffer, chars for a Writer or UTF-8 bytes for an
+// OutputStream, which is handed over when full and on flush()/close().
+public final class CSVWriter implements Flushable, AutoCloseable{
+	static final int WRITE_BUFFER = 1 << 16; // smallest buffer, chars or bytes
+
+	// Exactly one of these is the target
+	private final Writer writer;
+	private final OutputStream out;
+
+	private final char[] charBuff; // null when writing bytes
+	private final byte[] byteBuff; // null when writing chars
+	private int pos;
+
+	private final char delimiter;
+	private final char[] lineEnding;
+	private final boolean trimSpaces;
+	private final int[] inputClassTable;
+	private final boolean quoteNumbers; // a digit or '-' is a delimiter, so numbers need the general path
+
+	private int fieldCount; // fields of the current record written so far
+	private boolean lastFieldEmpty;
+	private long recordCount;
+	private boolean closed;
+
+	CSVWriter(Writer writer, OutputStream out, int bufferSize, Mode mode, char[] delimiters, boolean trimSpaces){
+		this.writer = writer;
+		this.out = out;
+		if(writer != null){
+			this.charBuff = new char[Math.max(bufferSize, WRITE_BUFFER)];
+			this.byteBuff = null;
+		}else{
+			this.charBuff = null;
+			this.byteBuff = new byte[Math.max(bufferSize, WRITE_BUFFER)];
+		}
+
+		switch(mode){
+			case UNIX:
+				this.lineEnding = new char[]{'\n'};
+				break;
+			case WINDOWS:
+			case LENIENT:
+				this.lineEnding = new char[]{'\r', '\n'};
+				break;
+			default:
+				throw new IllegalArgumentException("Invalid Writer Mode");
+		}
+
+		this.inputClassTable = new int[128]; // already filled with OTHER
+		inputClassTable['\"'] = QUOTE;
+		inputClassTable['\r'] = CR;
+		inputClassTable['\n'] = LF;
+		for(char d:delimiters){
+			if(d == '\r' || d == '\n'){
+				throw new IllegalArgumentException("Delimiter cannot be Line Ending");
+			}
+			if(d >= 128){
+				throw new IllegalArgumentException("Delimiter must be ASCII");
+			}
+			inputClassTable[d] = DELIMITER;
+		}
+		this.delimiter = delimiters[0];
+		this.trimSpaces = trimSpaces;
+
+		boolean quoteNumbers = inputClassTable['-'] != OTHER;
+		for(char c = '0'; c<='9'; c++){
+			quoteNumbers |= inputClassTable[c] != OTHER;
+		}
+		this.quoteNumbers = quoteNumbers;
+	}
+
+	// -----------------------------------------------------
+	// Records
+
+	public void writeRecord(CharSequence...fields){
+		for(CharSequence field:fields){
+			writeField(field);
+		}
+		endRecord();
+	}
+
+	public void writeRecord(List<? extends CharSequence> fields){
+		for(int i = 0; i<fields.size(); i++){
+			writeField(fields.get(i));
+		}
+		endRecord();
+	}
+
+	// Copies a record's fields straight out of its buffer, no String is built for them. A record from
+	// CSVByteReader goes byte for byte into a byte target; only a field that needs quoting is escaped.
+	public void writeRecord(CSVRecord record){
+		CharSequence chars = record.chars();
+		byte[] utf8 = record.utf8();
+		for(int f = 0; f<record.getRecordSize(); f++){
+			int start = record.fieldStart(f);
+			int end = record.fieldEnd(f);
+			startField(end == start);
+			if(chars != null){
+				putField(chars, start, end);
+			}else if(byteBuff != null){
+				putField(utf8, start, end);
+			}else{
+				String field = record.getField(f);
+				putField(field, 0, field.length());
+			}
+		}
+		endRecord();
+	}
+
+	// The names as the first record
+	public void writeHeader(CSVHeader header){
+		writeRecord(header.getNames());
+	}
+
+	// -----------------------------------------------------
+	// Field by field, endRecord() closes each record
+
+	// null is written as an empty field
+	public void writeField(CharSequence field){
+		int length = (field == null)? 0 : field.length();
+		startField(length == 0);
+		if(length != 0){
+			putField(field, 0, length);
+		}
+	}
+
+	// Digits go straight into the buffer, no String is made
+	public void writeField(long value){
+		if(quoteNumbers){
+			writeField(Long.toString(value));
+			return;
+		}
+		startField(false);
+		if(value == Long.MIN_VALUE){
+			putPlain("-9223372036854775808", 0, 20);
+			return;
+		}
+		ensure(20);
+		if(value < 0){
+			put('-');
+			value = -value;
+		}
+		int digits = 1;
+		for(long v = value; v >= 10; v /= 10){
+			digits++;
+		}
+		for(int i = pos + digits - 1; i>=pos; i--){
+			char digit = (char)('0' + value % 10);
+			if(charBuff != null) charBuff[i] = digit;
+			else byteBuff[i] = (byte)digit;
+			value /= 10;
+		}
+		pos += digits;
+	}
+
+	public void endRecord(){
+		if(fieldCount == 0 || (fieldCount == 1 && lastFieldEmpty)){
+			// a blank line would not read back as a record, a lone empty field is written as ""
+			ensure(2);
+			put('\"');
+			put('\"');
+		}
+		ensure(lineEnding.length);
+		for(char c:lineEnding){
+			put(c);
+		}
+		fieldCount = 0;
+		recordCount++;
+	}
+
+	public long getRecordCount(){
+		return recordCount;
+	}
+
+	private void startField(boolean empty){
+		if(fieldCount++ != 0){
+			ensure(1);
+			put(delimiter);
+		}
+		lastFieldEmpty = empty;
+	}
+
+	// -----------------------------------------------------
+	// Quoting
+
+	private boolean needsQuotes(CharSequence seq, int start, int end){
+		if(trimSpaces && (seq.charAt(start) == ' ' || seq.charAt(end-1) == ' ')){
+			return true;
+		}
+		for(int i = start; i<end; i++){
+			char c = seq.charAt(i);
+			if(c < 128 && inputClassTable[c] != OTHER){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// Quote, CR, LF and ASCII delimiters never occur inside a UTF-8 multi-byte sequence
+	private boolean needsQuotes(byte[] utf8, int start, int end){
+		if(trimSpaces && (utf8[start] == ' ' || utf8[end-1] == ' ')){
+			return true;
+		}
+		for(int i = start; i<end; i++){
+			byte b = utf8[i];
+			if(b >= 0 && inputClassTable[b] != OTHER){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void putField(CharSequence seq, int start, int end){
+		if(start == end){
+			return;
+		}
+		if(!needsQuotes(seq, start, end)){
+			putPlain(seq, start, end);
+			return;
+		}
+		ensure(1);
+		put('\"');
+		for(int i = start; i<end; i++){
+			char c = seq.charAt(i);
+			if(charBuff != null){
+				ensure(2);
+				if(c == '\"') charBuff[pos++] = '\"';
+				charBuff[pos++] = c;
+			}else{
+				i = encode(seq, i, end);
+			}
+		}
+		ensure(1);
+		put('\"');
+	}
+
+	private void putField(byte[] utf8, int start, int end){
+		if(start == end){
+			return;
+		}
+		if(!needsQuotes(utf8, start, end)){
+			while(start < end){
+				ensure(1);
+				int n = Math.min(end - start, byteBuff.length - pos);
+				System.arraycopy(utf8, start, byteBuff, pos, n);
+				pos += n;
+				start += n;
+			}
+			return;
+		}
+		ensure(1);
+		byteBuff[pos++] = '\"';
+		for(int i = start; i<end; i++){
+			ensure(2);
+			if(utf8[i] == '\"') byteBuff[pos++] = '\"';
+			byteBuff[pos++] = utf8[i];
+		}
+		ensure(1);
+		byteBuff[pos++] = '\"';
+	}
+
+	// Chars that need no escaping, copied in bulk into a char target
+	private void putPlain(CharSequence seq, int start, int end){
+		if(byteBuff != null){
+			for(int i = start; i<end; i++){
+				i = encode(seq, i, end);
+			}
+			return;
+		}
+		while(start < end){
+			ensure(1);
+			int n = Math.min(end - start, charBuff.length - pos);
+			if(seq instanceof String){
+				((String)seq).getChars(start, start + n, charBuff, pos);
+			}else if(seq instanceof StringBuilder){
+				((StringBuilder)seq).getChars(start, start + n, charBuff, pos);
+			}else{
+				for(int i = 0; i<n; i++){
+					charBuff[pos + i] = seq.charAt(start + i);
+				}
+			}
+			pos += n;
+			start += n;
+		}
+	}
+
+	// UTF-8 of the char at i, a quote doubled; returns the index of the last char used (a surrogate pair takes two)
+	private int encode(CharSequence seq, int i, int end){
+		ensure(4);
+		char c = seq.charAt(i);
+		if(c < 0x80){
+			if(c == '\"') byteBuff[pos++] = '\"';
+			byteBuff[pos++] = (byte)c;
+		}else if(c < 0x800){
+			byteBuff[pos++] = (byte)(0xC0 | (c >> 6));
+			byteBuff[pos++] = (byte)(0x80 | (c & 0x3F));
+		}else if(Character.isHighSurrogate(c) && i+1 < end && Character.isLowSurrogate(seq.charAt(i+1))){
+			int cp = Character.toCodePoint(c, seq.charAt(++i));
+			byteBuff[pos++] = (byte)(0xF0 | (cp >> 18));
+			byteBuff[pos++] = (byte)(0x80 | ((cp >> 12) & 0x3F));
+			byteBuff[pos++] = (byte)(0x80 | ((cp >> 6) & 0x3F));
+			byteBuff[pos++] = (byte)(0x80 | (cp & 0x3F));
+		}else if(Character.isSurrogate(c)){
+			byteBuff[pos++] = '?'; // unpaired, as String.getBytes() does
+		}else{
+			byteBuff[pos++] = (byte)(0xE0 | (c >> 12));
+			byteBuff[pos++] = (byte)(0x80 | ((c >> 6) & 0x3F));
+			byteBuff[pos++] = (byte)(0x80 | (c & 0x3F));
+		}
+		return i;
+	}
+
+	// -----------------------------------------------------
+	// Buffer
+
+	// ASCII only, callers ensure() the room first
+	private void put(char c){
+		if(charBuff != null) charBuff[pos++] = c;
+		else byteBuff[pos++] = (byte)c;
+	}
+
+	private void ensure(int room){
+		int capacity = (charBuff != null)? charBuff.length : byteBuff.length;
+		if(pos + room > capacity){
+			flushBuffer();
+		}
+	}
+
+	private void flushBuffer(){
+		try{
+			if(charBuff != null) writer.write(charBuff, 0, pos);
+			else out.write(byteBuff, 0, pos);
+		}catch(IOException e){
+			throw new UncheckedIOException(e);
+		}
+		pos = 0;
+	}
+
+	@Override
+	public void flush(){
+		flushBuffer();
+		try{
+			if(writer != null) writer.flush();
+			else out.flush();
+		}catch(IOException e){
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void close(){
+		if(closed){
+			return;
+		}
+		closed = true;
+		try{
+			flushBuffer();
+		}finally{
+			try{
+				if(writer != null) writer.close();
+				else out.close();
+			}catch(IOException e){
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+}
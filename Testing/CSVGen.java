@@ -1,34 +1,28 @@
 package Testing;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.io.UncheckedIOException;
+import RFC4180.CSVReader;
+import RFC4180.CSVWriter;
 
-public class CSVGen{
-	private static final String DELIMITER = ",";
-	private static final String LINE_ENDING = "\n";
+import java.io.File;
+import java.nio.file.Path;
 
+public class CSVGen{
 	private static long target = 100L*1024*1024;
 
 	public static void main(String[]args){
-		try(BufferedWriter w = new BufferedWriter(new FileWriter("Datasets/test100MB.csv"))){
-			// filepath is relative to YOUR current working directory
+		// filepath is relative to YOUR current working directory
+		try(CSVWriter w = new CSVReader.Builder().buildWriter(Path.of("Datasets/test100MB.csv"))){
 			int rows = 10000000;
 			int cols = 20;
 
 			for(int i = 0; i<rows; i++){
 				for(int j = 0; j<cols; j++){
-					w.write("data " + j);
-					if(j < cols-1) w.write(DELIMITER);
+					w.writeField("data " + j);
 				}
+				w.endRecord();
 
-				if(new java.io.File("Datasets/test100MB.csv").length() >= target) break;
-				
-				w.write(LINE_ENDING);
+				if(new File("Datasets/test100MB.csv").length() >= target) break;
 			}
-		}catch(IOException e){
-			throw new UncheckedIOException(e);
 		}
 	}
 }
@@ -0,0 +1,95 @@
+package Testing;
+
+import RFC4180.CSVIngestor;
+import RFC4180.CSVReader;
+
+import java.io.IOException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Closes readers that still have work queued, and fails if close() does not return:
+// - ingestor: close() after the first record, while workers are blocked on full batch queues
+// Usage: CloseTesting, exits with 1 on a hang
+public class CloseTesting{
+	private static final long TIMEOUT_MILLIS = 5000;
+	private static final int RECORDS = 2058; // over QUEUED_BATCHES full batches, so a worker blocks on its queue
+
+	private static int failures;
+
+	public static void main(String[]args) throws IOException{
+		List<Path> files = new ArrayList<>();
+		try{
+			for(int i = 0; i<2; i++){
+				files.add(csvFile(RECORDS));
+			}
+			for(CSVIngestor.Ordering ordering:CSVIngestor.Ordering.values()) for(int read:new int[]{0, 1, RECORDS}){
+				check("ingestor " + ordering + " after " + read + " records", () -> {
+					CSVIngestor ingestor = new CSVReader.Builder().buildIngestor(files, null, 2, ordering);
+					for(int i = 0; i<read && ingestor.hasNext(); i++){
+						ingestor.next();
+					}
+					Thread.sleep(100); // let the workers fill their queues
+					ingestor.close();
+				});
+			}
+		}finally{
+			for(Path file:files){
+				Files.deleteIfExists(file);
+			}
+		}
+
+		System.out.println("\nDone. " + failures + " hangs");
+		if(failures != 0){
+			System.exit(1);
+		}
+	}
+
+	private interface Task{
+		void run() throws Exception;
+	}
+
+	// Runs the task on its own daemon thread, so a hang can be reported instead of hanging the tester
+	private static void check(String name, Task task){
+		Throwable[] error = new Throwable[1];
+		Thread t = new Thread(() -> {
+			try{
+				task.run();
+			}catch(Throwable e){
+				error[0] = e;
+			}
+		}, "close-check");
+		t.setDaemon(true);
+		long start = System.nanoTime();
+		t.start();
+		try{
+			t.join(TIMEOUT_MILLIS);
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			return;
+		}
+		if(t.isAlive()){
+			failures++;
+			System.out.println(name + ": HUNG, close() did not return within " + TIMEOUT_MILLIS + " ms");
+		}else if(error[0] != null){
+			failures++;
+			System.out.println(name + ": FAILED, " + error[0]);
+		}else{
+			System.out.println(name + ": closed in " + (System.nanoTime() - start)/1_000_000 + " ms");
+		}
+	}
+
+	private static Path csvFile(int records) throws IOException{
+		Path file = Files.createTempFile("close-testing", ".csv");
+		StringBuilder sb = new StringBuilder();
+		for(int i = 0; i<records; i++){
+			sb.append(i).append(",field ").append(i).append('\n');
+		}
+		sb.setLength(sb.length() - 1); // no blank last line
+		Files.writeString(file, sb);
+		return file;
+	}
+}
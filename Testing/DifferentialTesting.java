@@ -0,0 +1,360 @@
+package Testing;
+
+import RFC4180.CSVByteReader;
+import RFC4180.CSVFormatException;
+import RFC4180.CSVReader;
+import RFC4180.CSVRecord;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// Runs random small inputs, valid and broken, through readers that must agree and prints any case where they do not:
+// - baseline: CSVReader and CSVByteReader against DifferentialBaseline.tsv, the output of the original single-loop reader
+// - engines: parsePlain()/parseGeneral() with bulk runs against a traced reader, which parses char by char in parseGeneral()
+// - bytes: CSVByteReader against CSVReader
+// - streaming: columns pushed to a FieldSink against the same columns buffered
+// Each check covers every Mode, with and without trimming, with one and two delimiters. Small buffers force refills mid-field.
+// Usage: DifferentialTesting [seeds] [baseline file] (defaults 2000, Testing/DifferentialBaseline.tsv), exits with 1 on a mismatch
+public class DifferentialTesting{
+	private static final String[] TOKENS = {"a", "b", "c", " ", "  ", "\"", "\"\"", ",", ";", "\n", "\r\n", "\r", "\u00e9", "\u65e5", "x y", "\t"};
+	private static final char[][] DELIMITERS = {{','}, {',', ';'}};
+	private static final CSVReader.ErrorPolicy[] POLICIES = CSVReader.ErrorPolicy.values();
+	private static final int SHOWN = 5; // mismatches printed in full, the rest are only counted
+
+	private static final PrintStream STDOUT = System.out;
+	private static final PrintStream DISCARD = new PrintStream(OutputStream.nullOutputStream());
+
+	private static int cases, mismatches;
+
+	public static void main(String[]args){
+		int seeds = (args.length > 0)? Integer.parseInt(args[0]) : 2000;
+		Path baselineFile = Paths.get((args.length > 1)? args[1] : "Testing/DifferentialBaseline.tsv");
+		// filepath is relative to YOUR current working directory
+
+		baseline(baselineFile);
+		engines(seeds);
+		bytes(seeds);
+		streaming(seeds);
+
+		System.out.println("\nDone. " + mismatches + " mismatches in " + cases + " cases");
+		if(mismatches != 0){
+			System.exit(1);
+		}
+	}
+
+	// -----------------------------------------------------
+	// Checks
+
+	// Each "I" line holds an input, each "R" line after it how the original reader read it in some settings.
+	// Where this reader deliberately reads an input differently, the R line also holds the new output and why.
+	private static void baseline(Path file){
+		int before = mismatches, start = cases, changed = 0;
+		String input = null;
+		try(BufferedReader in = Files.newBufferedReader(file, StandardCharsets.US_ASCII)){
+			String line;
+			while((line = in.readLine()) != null){
+				String[] parts = line.split("\t", -1);
+				if(parts[0].equals("I")){
+					input = unescape(parts[1]);
+				}else if(parts[0].equals("R")){
+					String expected = unescape((parts.length > 3)? parts[3] : parts[2]);
+					for(String setting:parts[1].split(" ")){
+						// mode initial, t when trimming, then the delimiters
+						CSVReader.Mode mode = (setting.charAt(0) == 'U')? CSVReader.Mode.UNIX
+							: (setting.charAt(0) == 'W')? CSVReader.Mode.WINDOWS : CSVReader.Mode.LENIENT;
+						boolean trim = setting.charAt(1) == 't';
+						char[] delimiters = setting.substring(trim? 2 : 1).toCharArray();
+						changed += (parts.length > 3)? 1 : 0;
+						for(int bufferSize:new int[]{16, 8192}){
+							CSVReader.Builder config = config(mode, trim, delimiters, CSVReader.ErrorPolicy.FAIL, bufferSize);
+							compare("baseline", -1, setting + " chars", input, expected, unnumbered(readChars(input, config, null)));
+							compare("baseline", -1, setting + " bytes", input, expected, unnumbered(readBytes(input, config)));
+						}
+					}
+				}
+			}
+		}catch(NoSuchFileException e){
+			cases++;
+			mismatches++;
+			System.out.println("baseline: " + file + " not found, run from the repository root or pass its path");
+			return;
+		}catch(IOException e){
+			throw new UncheckedIOException(e);
+		}
+		report("baseline", cases - start, mismatches - before);
+		System.out.println("baseline: " + changed + " settings listed as deliberately changed");
+	}
+
+	private static void engines(int seeds){
+		int before = mismatches, start = cases;
+		for(int seed = 0; seed<seeds; seed++){
+			Random rnd = new Random(seed);
+			String input = generate(rnd, rnd.nextBoolean());
+			int bufferSize = 8 + rnd.nextInt(32);
+			for(CSVReader.Mode mode:CSVReader.Mode.values()) for(boolean trim:new boolean[]{false, true})
+			for(char[] delimiters:DELIMITERS) for(CSVReader.ErrorPolicy policy:POLICIES){
+				String expected = readChars(input, config(mode, trim, delimiters, policy, bufferSize).enableTrace(true), null);
+				String actual = readChars(input, config(mode, trim, delimiters, policy, bufferSize), null);
+				compare("engines", seed, mode + " trim=" + trim + " " + new String(delimiters) + " " + policy, input, expected, actual);
+			}
+		}
+		report("engines", cases - start, mismatches - before);
+	}
+
+	private static void bytes(int seeds){
+		int before = mismatches, start = cases;
+		for(int seed = 0; seed<seeds; seed++){
+			Random rnd = new Random(seed);
+			String input = generate(rnd, rnd.nextBoolean());
+			int bufferSize = 8 + rnd.nextInt(32);
+			for(CSVReader.Mode mode:CSVReader.Mode.values()) for(boolean trim:new boolean[]{false, true}) for(char[] delimiters:DELIMITERS){
+				CSVReader.Builder config = config(mode, trim, delimiters, CSVReader.ErrorPolicy.FAIL, bufferSize);
+				String expected = readChars(input, config, null);
+				String actual = readBytes(input, config);
+				compare("bytes", seed, mode + " trim=" + trim + " " + new String(delimiters), input, expected, actual);
+			}
+		}
+		report("bytes", cases - start, mismatches - before);
+	}
+
+	private static void streaming(int seeds){
+		int before = mismatches, start = cases;
+		for(int seed = 0; seed<seeds; seed++){
+			Random rnd = new Random(seed);
+			String input = generate(rnd, rnd.nextBoolean());
+			int bufferSize = 8 + rnd.nextInt(32);
+			int first = rnd.nextInt(3);
+			int[] columns = rnd.nextBoolean()? new int[]{first} : new int[]{first, first+1};
+			for(CSVReader.Mode mode:CSVReader.Mode.values()) for(boolean trim:new boolean[]{false, true})
+			for(char[] delimiters:DELIMITERS) for(CSVReader.ErrorPolicy policy:POLICIES){
+				String expected = readChars(input, config(mode, trim, delimiters, policy, bufferSize), null);
+				CollectingSink sink = new CollectingSink(columns);
+				String actual = readChars(input, config(mode, trim, delimiters, policy, bufferSize).streamColumns(sink, columns), sink);
+				if(!sink.problems.isEmpty()){
+					actual += " " + sink.problems;
+				}
+				compare("streaming", seed, mode + " trim=" + trim + " " + new String(delimiters) + " " + policy + " columns=" + columnList(columns), input, expected, actual);
+			}
+		}
+		report("streaming", cases - start, mismatches - before);
+	}
+
+	// -----------------------------------------------------
+	// Readers
+
+	private static CSVReader.Builder config(CSVReader.Mode mode, boolean trim, char[] delimiters, CSVReader.ErrorPolicy policy, int bufferSize){
+		CSVReader.Builder config = new CSVReader.Builder()
+						.setMode(mode)
+						.enableTrimming(trim)
+						.setDelimiters(delimiters)
+						.bufferSize(bufferSize);
+		return (policy == CSVReader.ErrorPolicy.FAIL)? config : config.onError(policy, (e, raw) -> {});
+	}
+
+	// Every record as "number[field|field|]", then how reading stopped; streamed columns are filled in from the sink
+	private static String readChars(String input, CSVReader.Builder config, CollectingSink sink){
+		StringBuilder out = new StringBuilder();
+		try(CSVReader reader = config.build(new StringReader(input))){
+			System.setOut(DISCARD); // a traced reader prints every step
+			while(reader.hasNext()){
+				CSVRecord rec = reader.next();
+				out.append(rec.getRecordNumber()).append('[');
+				for(int i = 0; i<rec.getRecordSize(); i++){
+					String field = rec.getField(i);
+					if(sink != null && sink.streams(i)){
+						field = (field.isEmpty())? sink.field(rec.getRecordNumber(), i) : "<buffered " + field + ">";
+					}
+					out.append(field).append('|');
+				}
+				out.append(']');
+			}
+		}catch(CSVFormatException e){
+			out.append("ERR ").append(e.getMessage());
+		}catch(RuntimeException e){
+			out.append(e.getClass().getSimpleName());
+		}finally{
+			System.setOut(STDOUT);
+		}
+		return out.toString();
+	}
+
+	private static String readBytes(String input, CSVReader.Builder config){
+		StringBuilder out = new StringBuilder();
+		try(CSVByteReader reader = config.build(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)))){
+			while(reader.hasNext()){
+				CSVRecord rec = reader.next();
+				out.append(rec.getRecordNumber()).append('[');
+				for(int i = 0; i<rec.getRecordSize(); i++){
+					out.append(rec.getField(i)).append('|');
+				}
+				out.append(']');
+			}
+		}catch(CSVFormatException e){
+			out.append("ERR ").append(e.getMessage());
+		}catch(RuntimeException e){
+			out.append(e.getClass().getSimpleName());
+		}
+		return out.toString();
+	}
+
+	// Gathers streamed fields per record, and notes any call the FieldSink contract rules out
+	private static final class CollectingSink implements CSVReader.FieldSink{
+		private final int[] columns;
+		private final Map<Integer, Map<Integer, StringBuilder>> open = new HashMap<>();
+		private final Map<Integer, Map<Integer, String>> done = new HashMap<>();
+		private final List<String> problems = new ArrayList<>();
+
+		CollectingSink(int[] columns){
+			this.columns = columns;
+		}
+
+		@Override
+		public void chunk(int recordNumber, int column, char[] chars, int offset, int length){
+			if(!streams(column)){
+				problems.add("chunk of column " + column);
+			}
+			if(done.containsKey(recordNumber) && done.get(recordNumber).containsKey(column)){
+				problems.add("chunk after end " + recordNumber + ":" + column);
+			}
+			open.computeIfAbsent(recordNumber, k -> new HashMap<>()).computeIfAbsent(column, k -> new StringBuilder()).append(chars, offset, length);
+		}
+
+		@Override
+		public void end(int recordNumber, int column){
+			Map<Integer, StringBuilder> fields = open.get(recordNumber);
+			StringBuilder field = (fields == null)? null : fields.remove(column);
+			done.computeIfAbsent(recordNumber, k -> new HashMap<>()).put(column, (field == null)? "" : field.toString());
+		}
+
+		@Override
+		public void discard(int recordNumber){
+			open.remove(recordNumber);
+			done.remove(recordNumber);
+		}
+
+		boolean streams(int column){
+			for(int c:columns){
+				if(c == column){
+					return true;
+				}
+			}
+			return false;
+		}
+
+		String field(int recordNumber, int column){
+			Map<Integer, String> fields = done.get(recordNumber);
+			return (fields == null || !fields.containsKey(column))? "<missing>" : fields.get(column);
+		}
+	}
+
+	// -----------------------------------------------------
+	// Inputs
+
+	// A few records of quoted and unquoted fields; broken inputs also get stray quotes, CRs, blank lines
+	// and ragged rows. Valid inputs keep to the tokens every mode reads the same way.
+	private static String generate(Random rnd, boolean valid){
+		StringBuilder sb = new StringBuilder();
+		int rows = 1 + rnd.nextInt(6), cols = 1 + rnd.nextInt(4);
+		String newline = (rnd.nextInt(3) == 0)? "\r\n" : "\n";
+		for(int i = 0; i<rows; i++){
+			int c = (valid || rnd.nextInt(5) != 0)? cols : cols + rnd.nextInt(3) - 1;
+			for(int j = 0; j<c; j++){
+				boolean quoted = rnd.nextBoolean();
+				if(rnd.nextInt(4) == 0) sb.append(' ');
+				if(quoted) sb.append('"');
+				int n = rnd.nextInt(valid? 6 : 8);
+				for(int k = 0; k<n; k++){
+					String token = TOKENS[rnd.nextInt(valid? 5 : TOKENS.length)];
+					if(quoted && token.equals("\"")) token = "\"\"";
+					sb.append(token);
+				}
+				if(quoted) sb.append('"');
+				if(rnd.nextInt(4) == 0) sb.append(' ');
+				if(j<c-1) sb.append((rnd.nextInt(8) == 0)? ';' : ',');
+			}
+			if(i<rows-1 || rnd.nextBoolean()){
+				sb.append((rnd.nextInt(10) == 0)? (rnd.nextBoolean()? "\r" : "\n\n") : newline);
+			}
+		}
+		if(!valid && rnd.nextInt(5) == 0){
+			sb.insert(rnd.nextInt(sb.length()+1), TOKENS[rnd.nextInt(TOKENS.length)]);
+		}
+		return sb.toString();
+	}
+
+	// -----------------------------------------------------
+	// Reporting
+
+	private static void compare(String check, int seed, String setting, String input, String expected, String actual){
+		cases++;
+		if(expected.equals(actual)){
+			return;
+		}
+		if(mismatches++ < SHOWN){
+			System.out.println("MISMATCH " + check + " seed=" + seed + " " + setting);
+			System.out.println("  input:    " + escape(input));
+			System.out.println("  expected: " + escape(expected));
+			System.out.println("  actual:   " + escape(actual));
+		}
+	}
+
+	private static void report(String check, int total, int failed){
+		System.out.println(check + ": " + (total - failed) + "/" + total + " agree");
+	}
+
+	private static String columnList(int[] columns){
+		StringBuilder sb = new StringBuilder();
+		for(int c:columns){
+			sb.append((sb.length() == 0)? "" : ",").append(c);
+		}
+		return sb.toString();
+	}
+
+	// The original reader has no record numbers, so they are left out when comparing with it;
+	// generated inputs never hold brackets, so only record numbers match
+	private static String unnumbered(String out){
+		return out.replaceAll("(^|\\])\\d+\\[", "$1[");
+	}
+
+	// Baseline files are ASCII, one line per entry
+	private static String unescape(String s){
+		StringBuilder sb = new StringBuilder(s.length());
+		for(int i = 0; i<s.length(); i++){
+			char c = s.charAt(i);
+			if(c != '\\'){
+				sb.append(c);
+				continue;
+			}
+			c = s.charAt(++i);
+			switch(c){
+				case 't': sb.append('\t'); break;
+				case 'n': sb.append('\n'); break;
+				case 'r': sb.append('\r'); break;
+				case 'u': sb.append((char)Integer.parseInt(s.substring(i+1, i+5), 16)); i += 4; break;
+				default: sb.append(c);
+			}
+		}
+		return sb.toString();
+	}
+
+	private static String escape(String s){
+		return s.replace("\r", "<CR>").replace("\n", "<LF>");
+	}
+}
@@ -0,0 +1,82 @@
+package Benchmarks;
+
+import java.util.Random;
+
+import RFC4180.CSVReader;
+
+// Seeded take on Testing.CSVFuzzer.randomRow(), so every run and every fork parses exactly the same input
+public final class CSVBenchData{
+	public enum Shape{
+		QUOTED(12, 1.0),  // every field quoted, with delimiters, escaped quotes and line breaks inside
+		WIDE(200, 0.5),   // many short fields per record
+		NARROW(3, 0.5);   // few fields, so per-record cost dominates
+
+		final int cols;
+		final double quoteRatio;
+
+		Shape(int cols, double quoteRatio){
+			this.cols = cols;
+			this.quoteRatio = quoteRatio;
+		}
+	}
+
+	private static final String[] TOKENS = {
+		"a", "b", "c", "d", "e", "f", "g", "h",
+		";", " ", ".", "\t"
+	};
+
+	// None of these appear in TOKENS, so unquoted fields never need escaping
+	public static final char[] ONE_DELIMITER = {','};
+	public static final char[] FIVE_DELIMITERS = {',', '|', ':', '#', '~'};
+
+	private CSVBenchData(){}
+
+	public static String lineEnding(CSVReader.Mode mode){
+		switch(mode){
+			case WINDOWS:
+				return "\r\n";
+			case LENIENT:
+				return "\r"; // goes through the CR lookahead
+			default:
+				return "\n";
+		}
+	}
+
+	// At least targetChars of ASCII data, cut at a record boundary
+	public static String generate(long seed, Shape shape, CSVReader.Mode mode, boolean trim, char[] delimiters, int targetChars){
+		Random r = new Random(seed);
+		String ending = lineEnding(mode);
+		StringBuilder builder = new StringBuilder(targetChars + 4096);
+		while(builder.length() < targetChars){
+			randomRow(r, shape, ending, trim, delimiters, builder);
+		}
+		return builder.toString();
+	}
+
+	private static void randomRow(Random r, Shape shape, String ending, boolean trim, char[] delimiters, StringBuilder builder){
+		for(int f = 0; f<shape.cols; f++){
+			boolean quoted = r.nextDouble() < shape.quoteRatio;
+			// spaces outside quotes are only valid when they get trimmed
+			if(trim) builder.append(' ');
+			if(quoted) builder.append('\"');
+
+			// a letter first, so no record is ever made of blank fields only
+			builder.append((char)('a' + r.nextInt(8)));
+			int flen = r.nextInt(10);
+			for(int i = 0; i<flen; i++){
+				if(quoted && shape == Shape.QUOTED && r.nextInt(8) == 0){
+					int special = r.nextInt(3);
+					builder.append((special == 0)? String.valueOf(delimiters[0]) : (special == 1)? "\"\"" : ending);
+				}else{
+					builder.append(TOKENS[r.nextInt(TOKENS.length)]);
+				}
+			}
+
+			if(quoted) builder.append('\"');
+			if(trim) builder.append(' ');
+			if(f<shape.cols-1) builder.append(delimiters[f % delimiters.length]);
+		}
+
+		builder.append(ending);
+	}
+}
@@ -0,0 +1,95 @@
+package Benchmarks;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import RFC4180.CSVReader;
+import RFC4180.CSVRecord;
+
+// CSVReader over in-memory data, so only parsing is measured and never the disk.
+//   throughput: one op is one pass over the data, the chars counter is the MB/s figure (the data is ASCII)
+//   record:     one op is one record, so gc.alloc.rate.norm from -prof gc reads as bytes per record
+//
+//   java -jar benchmarks/target/benchmarks.jar CSVReaderBenchmark -prof gc
+@BenchmarkMode(org.openjdk.jmh.annotations.Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Benchmark)
+public class CSVReaderBenchmark{
+	private static final long SEED = 4180;
+	private static final int DATA_CHARS = 4 * 1024 * 1024;
+
+	@Param({"UNIX", "WINDOWS", "LENIENT"})
+	public CSVReader.Mode mode;
+
+	@Param({"false", "true"})
+	public boolean trim;
+
+	@Param({"1", "5"})
+	public int delimiters;
+
+	@Param({"QUOTED", "WIDE", "NARROW"})
+	public CSVBenchData.Shape shape;
+
+	private String data;
+	private CSVReader.Builder builder;
+
+	@Setup
+	public void setup(){
+		char[] delims = (delimiters == 1)? CSVBenchData.ONE_DELIMITER : CSVBenchData.FIVE_DELIMITERS;
+		data = CSVBenchData.generate(SEED, shape, mode, trim, delims, DATA_CHARS);
+		builder = new CSVReader.Builder()
+			.setMode(mode)
+			.enableTrimming(trim)
+			.setDelimiters(delims);
+	}
+
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	@State(Scope.Thread)
+	public static class Volume{
+		public long chars;
+		public long records;
+	}
+
+	@State(Scope.Thread)
+	public static class Cursor{
+		CSVReader reader;
+	}
+
+	@Benchmark
+	public void throughput(Volume volume, Blackhole bh){
+		long records = 0;
+		try(CSVReader reader = builder.build(new StringReader(data))){
+			while(reader.hasNext()){
+				bh.consume(reader.next());
+				records++;
+			}
+		}
+		volume.records += records;
+		volume.chars += data.length();
+	}
+
+	// The reader is rebuilt once the data runs out, which is amortised over thousands of records
+	@Benchmark
+	public CSVRecord record(Cursor cursor){
+		if(cursor.reader == null || !cursor.reader.hasNext()){
+			cursor.reader = builder.build(new StringReader(data));
+		}
+		return cursor.reader.next();
+	}
+}